@@ -0,0 +1,55 @@
+package dimple;
+
+import java.util.Arrays;
+
+// A tri-state assignment of variables, one byte per variable.
+public final class Assignment {
+  static final byte FALSE = -1;
+  static final byte UNASSIGNED = 0;
+  static final byte TRUE = 1;
+
+  byte[] values;
+
+  Assignment(int variables) {
+    this.values = new byte[variables];
+  }
+
+  private Assignment(byte[] values) {
+    this.values = values;
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  public boolean isAssigned(int variable) {
+    return values[variable] != UNASSIGNED;
+  }
+
+  public boolean get(int variable) {
+    return values[variable] == TRUE;
+  }
+
+  // The value of a literal: TRUE, FALSE or UNASSIGNED.
+  byte valueOf(int literal) {
+    byte value = values[literal >> 1];
+    return (literal & 1) == 0 ? value : (byte)-value;
+  }
+
+  void assign(int literal) {
+    values[literal >> 1] = (literal & 1) == 0 ? TRUE : FALSE;
+  }
+
+  void unassign(int variable) {
+    values[variable] = UNASSIGNED;
+  }
+
+  // Adds unassigned variables up to the given amount.
+  void grow(int variables) {
+    values = Arrays.copyOf(values, variables);
+  }
+
+  public Assignment copy() {
+    return new Assignment(Arrays.copyOf(values, values.length));
+  }
+}
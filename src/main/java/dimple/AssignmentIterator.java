@@ -1,116 +1,231 @@
 package dimple;
 
-import com.google.common.collect.ImmutableBiMap;
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.Deque;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-class AssignmentIterator implements Iterator<Boolean[]> {
-  private final ImmutableBiMap<String, Integer> variables;
-  private final Collection<Set<Integer>> clauses;
-
-  private final List<Deque<Set<Integer>>> watchList;
-  private final Boolean[] currentAssignment;
-
-  private int currentVariable;
-  private Integer[] state;
+// Enumerates all satisfying assignments with chronological backtracking. Implied literals are
+// found with two-watched-literal unit propagation: the first two literals of every clause are
+// watched, and a clause is only visited when one of its watched literals becomes false.
+// Cardinality constraints are propagated by a CardinalityPropagator once the clauses are, and XOR
+// constraints by an XorPropagator.
+class AssignmentIterator implements Iterator<Assignment> {
+  private static final int NO_CONFLICT = -1;
+  private static final int PARITY_CONFLICT = Integer.MIN_VALUE;
+
+  private final ClauseDatabase clauses;
+  private final int variables;
+
+  private final IntVector[] watchList;
+  private final CardinalityPropagator cardinalities;
+  private final CardinalityPropagator.Implication implication =
+      (literal, constraint) -> enqueue(literal);
+  private final XorPropagator xors;
+  private final XorPropagator.Implication parityImplication = (literal, reason) -> enqueue(literal);
+  private int[] parityConflict;
+  private final Assignment currentAssignment;
+
+  private final IntVector trail;
+  private final IntVector trailLimits;
+  private final IntVector flipped;
+  private int propagationHead;
+
+  private final DecisionHeuristic heuristic;
+  private boolean started;
   private boolean hasNext;
 
-  private List<Deque<Set<Integer>>> createWatchList() {
-    List<Deque<Set<Integer>>> watchList = Stream.generate(() -> new ArrayDeque<Set<Integer>>())
-        .limit(2 * variables.size())
-        .collect(Collectors.toList());
+  private IntVector[] createWatchList() {
+    var watchList = new IntVector[2 * variables];
+    for (int literal = 0; literal < watchList.length; literal++)
+      watchList[literal] = new IntVector();
 
-    for (var clause : clauses) {
-      var any = clause.iterator().next();
-      watchList.get(any).add(clause);
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref)) {
+      if (clauses.length(ref) > 1) {
+        watchList[clauses.literal(ref, 0)].add(ref);
+        watchList[clauses.literal(ref, 1)].add(ref);
+      }
     }
 
     return watchList;
   }
 
-  AssignmentIterator(ImmutableBiMap<String, Integer> variables, Collection<Set<Integer>> clauses) {
+  AssignmentIterator(int variables, ClauseDatabase clauses, DecisionHeuristic heuristic) {
+    this.clauses = clauses.copy();
     this.variables = variables;
-    this.clauses = clauses;
 
     this.watchList = createWatchList();
-    this.currentAssignment = Stream.generate(() -> null)
-        .limit(variables.size())
-        .toArray(Boolean[]::new);
+    this.cardinalities = new CardinalityPropagator(variables, clauses);
+    this.xors = new XorPropagator(variables, clauses);
+    this.currentAssignment = new Assignment(variables);
 
-    this.currentVariable = 0;
-    this.state = Stream.generate(() -> 0).limit(variables.size()).toArray(Integer[]::new);
+    this.trail = new IntVector(variables);
+    this.trailLimits = new IntVector();
+    this.flipped = new IntVector();
+    this.propagationHead = 0;
+
+    this.heuristic = heuristic;
+    this.started = false;
     this.hasNext = true;
   }
 
-  private boolean findAlterantive(final int falseVariable) {
-    boolean foundAlternative = false;
-
-    var clause = watchList.get(falseVariable).getFirst();
-    for (var alternative : clause) {
-      var variable = alternative >> 1;
-      var isFalse = (alternative & 1) > 0;
-      if (currentAssignment[variable] == null || currentAssignment[variable] != isFalse) {
-        foundAlternative = true;
-        watchList.get(falseVariable).removeFirst();
-        watchList.get(alternative).add(clause);
-        break;
+  private boolean enqueue(int literal) {
+    byte value = currentAssignment.valueOf(literal);
+    if (value != Assignment.UNASSIGNED)
+      return value == Assignment.TRUE;
+    currentAssignment.assign(literal);
+    trail.add(literal);
+    return true;
+  }
+
+  // Returns the offset of a conflicting clause, the negated constraint plus one of a conflicting
+  // cardinality constraint, PARITY_CONFLICT for a conflicting XOR constraint, or NO_CONFLICT once
+  // all are propagated.
+  private int propagate() {
+    int conflict = propagateClauses();
+    while (conflict == NO_CONFLICT && (cardinalities.pending(trail) || xors.pending(trail))) {
+      int constraint = cardinalities.propagate(trail, currentAssignment, implication);
+      if (constraint != CardinalityPropagator.NO_CONFLICT)
+        return NO_CONFLICT - 1 - constraint;
+      parityConflict = xors.propagate(trail, currentAssignment, parityImplication);
+      conflict = parityConflict != null ? PARITY_CONFLICT : propagateClauses();
+    }
+    return conflict;
+  }
+
+  // Returns the offset of a conflicting clause, or NO_CONFLICT once the queue is empty.
+  private int propagateClauses() {
+    var arena = clauses.arena;
+
+    while (propagationHead < trail.size) {
+      int falseLiteral = trail.data[propagationHead++] ^ 1;
+      var watchers = watchList[falseLiteral];
+      var refs = watchers.data;
+      int size = watchers.size;
+      int i = 0;
+      int j = 0;
+
+      nextClause:
+      while (i < size) {
+        int clause = refs[i++];
+        int base = clause + ClauseDatabase.HEADER_SIZE;
+
+        // Keep the false literal in the second position.
+        if (arena[base] == falseLiteral) {
+          arena[base] = arena[base + 1];
+          arena[base + 1] = falseLiteral;
+        }
+
+        int other = arena[base];
+        if (currentAssignment.valueOf(other) == Assignment.TRUE) {
+          refs[j++] = clause;
+          continue;
+        }
+
+        int end = base + arena[clause];
+        for (int k = base + 2; k < end; k++) {
+          int alternative = arena[k];
+          if (currentAssignment.valueOf(alternative) != Assignment.FALSE) {
+            arena[base + 1] = alternative;
+            arena[k] = falseLiteral;
+            watchList[alternative].add(clause);
+            continue nextClause;
+          }
+        }
+
+        refs[j++] = clause;
+        if (!enqueue(other)) {
+          while (i < size)
+            refs[j++] = refs[i++];
+          watchers.size = j;
+          propagationHead = trail.size;
+          return clause;
+        }
       }
+
+      watchers.size = j;
     }
 
-    return foundAlternative;
+    return NO_CONFLICT;
   }
 
-  private boolean updateWatchList(final int falseVariable) {
-    while (!watchList.get(falseVariable).isEmpty())
-      if (!findAlterantive(falseVariable))
+  private boolean initialize() {
+    if (clauses.hasEmptyClause() || xors.refuted())
+      return false;
+
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref))
+      if (clauses.length(ref) == 1 && !enqueue(clauses.literal(ref, 0)))
         return false;
+
     return true;
   }
 
-  private boolean tryUpdate() {
-    boolean triedUpdate = false;
-    for (var value : new int[]{0, 1}) {
-      if (((state[currentVariable] >> value) & 1) == 0) {
+  private void undoUntil(int level) {
+    int limit = trailLimits.data[level];
+    cardinalities.backtrack(trail, limit);
+    xors.backtrack(trail, limit);
+    for (int i = trail.size - 1; i >= limit; i--) {
+      int variable = trail.data[i] >> 1;
+      currentAssignment.unassign(variable);
+      heuristic.unassigned(variable);
+    }
+    trail.shrink(limit);
+    trailLimits.shrink(level);
+    flipped.shrink(level);
+    propagationHead = limit;
+  }
 
-        triedUpdate = true;
-        state[currentVariable] |= 1 << value;
-        currentAssignment[currentVariable] = value != 0;
+  // Flips the most recent decision which has not been flipped yet.
+  private boolean backtrack() {
+    int level = flipped.size - 1;
+    while (level >= 0 && flipped.data[level] != 0)
+      level -= 1;
+    if (level < 0)
+      return false;
+
+    int decision = trail.data[trailLimits.data[level]];
+    undoUntil(level);
+    trailLimits.add(trail.size);
+    flipped.add(1);
+    enqueue(decision ^ 1);
+    return true;
+  }
 
-        if (!updateWatchList(currentVariable << 1 | value))
-          currentAssignment[currentVariable] = null;
-        else {
-          currentVariable += 1;
-          break;
-        }
-      }
-    }
-    return triedUpdate;
+  private void bumpConflict(int clause) {
+    if (clause == PARITY_CONFLICT) {
+      for (int literal : parityConflict)
+        heuristic.bump(Literals.variable(literal));
+    } else if (clause < NO_CONFLICT) {
+      for (int literal : cardinalities.literals(NO_CONFLICT - 1 - clause))
+        heuristic.bump(Literals.variable(literal));
+    } else
+      for (int i = 0; i < clauses.length(clause); i++)
+        heuristic.bump(Literals.variable(clauses.literal(clause, i)));
+    heuristic.decay();
   }
 
-  private Boolean[] nextAssignment() {
-    while (true) {
-      if (currentVariable == variables.size()) {
-        currentVariable -= 1;
-        return currentAssignment;
-      }
+  private Assignment nextAssignment() {
+    if (!started) {
+      started = true;
+      if (!initialize())
+        return null;
+    } else if (!backtrack())
+      return null;
 
-      if (!tryUpdate()) {
-        if (currentVariable == 0) {
-          hasNext = false;
+    while (true) {
+      int conflict = propagate();
+      if (conflict != NO_CONFLICT) {
+        bumpConflict(conflict);
+        if (!backtrack())
           return null;
-        } else {
-          state[currentVariable] = 0;
-          currentAssignment[currentVariable] = null;
-          currentVariable -= 1;
-        }
+        continue;
       }
+
+      int variable = heuristic.next(currentAssignment);
+      if (variable == -1)
+        return currentAssignment;
+
+      trailLimits.add(trail.size);
+      flipped.add(0);
+      enqueue(variable << 1 | 1);
     }
   }
 
@@ -120,11 +235,13 @@ class AssignmentIterator implements Iterator<Boolean[]> {
   }
 
   @Override
-  public Boolean[] next() {
+  public Assignment next() {
     if (hasNext) {
       var assignment = nextAssignment();
-      if (assignment == null)
-        return new Boolean[variables.size()];
+      if (assignment == null) {
+        hasNext = false;
+        return new Assignment(variables);
+      }
       return assignment;
     } else
       throw new NoSuchElementException();
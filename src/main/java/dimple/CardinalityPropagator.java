@@ -0,0 +1,121 @@
+package dimple;
+
+import java.util.Arrays;
+
+// Propagates the cardinality constraints of a clause database by counting the true literals of
+// each. Every literal has a list of the constraints it occurs in, and when it is assigned true
+// their counts grow. A constraint whose count reaches its bound implies its unassigned literals
+// false, and one whose count exceeds it is a conflict. Counts are only ever kept for the literals
+// of the trail before the head, and are undone along with the trail.
+final class CardinalityPropagator {
+  static final int NO_CONFLICT = -1;
+
+  // Assigns a literal implied by a constraint.
+  interface Implication {
+    void imply(int literal, int constraint);
+  }
+
+  private int[][] literals;
+  private int[] bounds;
+  private int[] counts;
+  private int size;
+  private IntVector[] occurrences;
+  // The amount of literals of the trail counted.
+  private int head;
+
+  CardinalityPropagator(int variables, ClauseDatabase clauses) {
+    this.literals = new int[Math.max(clauses.cardinalityCount(), 4)][];
+    this.bounds = new int[literals.length];
+    this.counts = new int[literals.length];
+    this.size = 0;
+    this.occurrences = new IntVector[2 * variables];
+    for (int literal = 0; literal < occurrences.length; literal++)
+      occurrences[literal] = new IntVector(1);
+    this.head = 0;
+    for (int constraint = 0; constraint < clauses.cardinalityCount(); constraint++)
+      add(clauses.cardinalityBound(constraint), clauses.cardinalityLiterals(constraint));
+  }
+
+  void grow(int variables) {
+    int previous = occurrences.length;
+    if (2 * variables <= previous)
+      return;
+    occurrences = Arrays.copyOf(occurrences, 2 * variables);
+    for (int literal = previous; literal < occurrences.length; literal++)
+      occurrences[literal] = new IntVector(1);
+  }
+
+  private int add(int bound, int[] constraint) {
+    if (size == literals.length) {
+      literals = Arrays.copyOf(literals, size << 1);
+      bounds = Arrays.copyOf(bounds, size << 1);
+      counts = Arrays.copyOf(counts, size << 1);
+    }
+    literals[size] = constraint;
+    bounds[size] = bound;
+    counts[size] = 0;
+    for (int literal : constraint)
+      occurrences[literal].add(size);
+    return size++;
+  }
+
+  // Adds a constraint while every literal of the trail has been counted. Returns the constraint if
+  // the literals already true exceed its bound, and NO_CONFLICT otherwise.
+  int add(int bound, int[] constraint, Assignment assignment, Implication implication) {
+    int added = add(bound, constraint);
+    for (int literal : constraint)
+      if (assignment.valueOf(literal) == Assignment.TRUE)
+        counts[added]++;
+    if (counts[added] > bound)
+      return added;
+    if (counts[added] == bound)
+      saturate(added, assignment, implication);
+    return NO_CONFLICT;
+  }
+
+  int[] literals(int constraint) {
+    return literals[constraint];
+  }
+
+  // Whether there are literals on the trail left to count.
+  boolean pending(IntVector trail) {
+    return head < trail.size;
+  }
+
+  private void saturate(int constraint, Assignment assignment, Implication implication) {
+    for (int literal : literals[constraint])
+      if (assignment.valueOf(literal) == Assignment.UNASSIGNED)
+        implication.imply(literal ^ 1, constraint);
+  }
+
+  // Counts the literals of the trail from the head on, including those implied on the way. Returns
+  // a constraint exceeding its bound, or NO_CONFLICT once the whole trail is counted.
+  int propagate(IntVector trail, Assignment assignment, Implication implication) {
+    while (head < trail.size) {
+      var constraints = occurrences[trail.data[head++]];
+      for (int i = 0; i < constraints.size; i++) {
+        int constraint = constraints.data[i];
+        int count = ++counts[constraint];
+        if (count > bounds[constraint]) {
+          // The literal is counted in full, so that backtracking uncounts it in full.
+          for (int j = i + 1; j < constraints.size; j++)
+            counts[constraints.data[j]]++;
+          return constraint;
+        }
+        if (count == bounds[constraint])
+          saturate(constraint, assignment, implication);
+      }
+    }
+    return NO_CONFLICT;
+  }
+
+  // Uncounts the literals of the trail from the given position on, before they are unassigned.
+  void backtrack(IntVector trail, int limit) {
+    for (int i = Math.min(head, trail.size) - 1; i >= limit; i--) {
+      var constraints = occurrences[trail.data[i]];
+      for (int j = 0; j < constraints.size; j++)
+        counts[constraints.data[j]]--;
+    }
+    head = Math.min(head, limit);
+  }
+}
@@ -0,0 +1,822 @@
+package dimple;
+
+import java.util.Arrays;
+
+// Conflict driven clause learning. Every assignment on the trail remembers its decision level and
+// the clause which implied it, forming the implication graph. On conflict the graph is traversed
+// back to the first unique implication point, the resulting clause is minimised and learned, and
+// the search jumps back to the level at which the learned clause becomes unit.
+//
+// Cardinality constraints are propagated by a CardinalityPropagator once the clauses are. Their
+// reasons and conflicts are numbered below NO_REASON, and are explained by a clause of the
+// literals of the constraint true before, built only when analysis asks for it. XOR constraints
+// are propagated by an XorPropagator after them, and their reasons and conflicts are all
+// PARITY_REASON, explained by the clauses the propagator gave along with them.
+final class CdclSearch {
+  private static final int NO_REASON = -1;
+  private static final int PARITY_REASON = Integer.MIN_VALUE;
+  private static final int NO_CONFLICT = -1;
+  private static final float CLAUSE_DECAY = 0.999f;
+  private static final float CLAUSE_RESCALE_LIMIT = 1e20f;
+
+  private final ClauseDatabase clauses;
+  private int variables;
+
+  private final Assignment assignment;
+  private IntVector[] watches;
+  private int[] reason;
+  private int[] level;
+  private int[] position;
+  private final CardinalityPropagator cardinalities;
+  private final CardinalityPropagator.Implication implication = this::imply;
+  private final XorPropagator xors;
+  private final XorPropagator.Implication parityImplication = this::implyParity;
+  private int[][] parityReasons;
+  private int[] parityConflict;
+  // The clause explain() points at.
+  private int[] explained;
+  private int explainedStart;
+  private int explainedEnd;
+  private final IntVector explanation;
+
+  private final IntVector trail;
+  private final IntVector trailLimits;
+  private int propagationHead;
+
+  private byte[] seen;
+  private final IntVector learnt;
+  private final IntVector toClear;
+  private final IntVector stack;
+
+  private final DecisionHeuristic heuristic;
+  private final RestartPolicy restartPolicy;
+  private final boolean phaseSaving;
+  private byte[] phase;
+  private final byte defaultPhase;
+  private int[] levelStamps;
+  private int stamp;
+  private boolean unsatisfiable;
+  private volatile boolean interrupted;
+  private final IntVector failed;
+
+  private final IntVector learned;
+  private final int reduceInterval;
+  private final int reduceIncrement;
+  private final int glueLbd;
+  private final long learnedMemoryBudget;
+  private float clauseIncrement;
+  private long learnedLiterals;
+  private long nextReduce;
+  private long lastReduce;
+
+  private long conflicts;
+  private long decisions;
+  private long propagations;
+  private long restarts;
+  private long reductions;
+  private long deletedClauses;
+
+  private ClauseExchange.Endpoint exchange;
+  private final ClauseExchange.ClauseConsumer importer = this::importClause;
+  private final IntVector simplified = new IntVector();
+  private long usefulImports;
+
+  // The clauses are copied, since watching reorders their literals and learned clauses are added.
+  CdclSearch(int variables, ClauseDatabase clauses, SolverOptions options) {
+    this.clauses = clauses.copy();
+    this.variables = Math.max(variables, clauses.variables());
+
+    this.assignment = new Assignment(this.variables);
+    this.watches = new IntVector[2 * this.variables];
+    for (int literal = 0; literal < watches.length; literal++)
+      watches[literal] = new IntVector();
+    this.reason = new int[this.variables];
+    this.level = new int[this.variables];
+    this.position = new int[this.variables];
+    this.cardinalities = new CardinalityPropagator(this.variables, clauses);
+    this.xors = new XorPropagator(this.variables, clauses);
+    this.parityReasons = new int[this.variables][];
+    this.explanation = new IntVector();
+
+    this.trail = new IntVector(this.variables);
+    this.trailLimits = new IntVector();
+    this.propagationHead = 0;
+
+    this.seen = new byte[this.variables];
+    this.learnt = new IntVector();
+    this.toClear = new IntVector();
+    this.stack = new IntVector();
+
+    this.heuristic = options.heuristic(this.variables);
+    this.restartPolicy = options.restartPolicy();
+    this.phaseSaving = options.phaseSaving();
+    this.defaultPhase = (byte)(options.defaultPolarity() ? 0 : 1);
+    this.phase = new byte[this.variables];
+    Arrays.fill(phase, defaultPhase);
+    this.levelStamps = new int[this.variables + 1];
+    this.stamp = 0;
+
+    this.learned = new IntVector();
+    this.reduceInterval = options.reduceInterval();
+    this.reduceIncrement = options.reduceIncrement();
+    this.glueLbd = options.glueLbd();
+    this.learnedMemoryBudget = options.learnedMemoryBudget();
+    this.clauseIncrement = 1.0f;
+    this.learnedLiterals = 0;
+    this.nextReduce = reduceInterval;
+    this.lastReduce = 0;
+    this.unsatisfiable = false;
+    this.failed = new IntVector();
+    initialize();
+  }
+
+  private void initialize() {
+    unsatisfiable = xors.refuted();
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref)) {
+      int length = clauses.length(ref);
+      if (length == 0)
+        unsatisfiable = true;
+      else if (length == 1)
+        unsatisfiable |= !enqueue(clauses.literal(ref, 0), NO_REASON);
+      else
+        attach(ref);
+    }
+  }
+
+  private void attach(int ref) {
+    watches[clauses.literal(ref, 0)].add(ref);
+    watches[clauses.literal(ref, 1)].add(ref);
+  }
+
+  int decisionLevel() {
+    return trailLimits.size;
+  }
+
+  private boolean enqueue(int literal, int from) {
+    byte value = assignment.valueOf(literal);
+    if (value != Assignment.UNASSIGNED)
+      return value == Assignment.TRUE;
+
+    int variable = literal >> 1;
+    assignment.assign(literal);
+    reason[variable] = from;
+    level[variable] = decisionLevel();
+    position[variable] = trail.size;
+    trail.add(literal);
+    return true;
+  }
+
+  private static int cardinalityReason(int constraint) {
+    return NO_REASON - 1 - constraint;
+  }
+
+  private void imply(int literal, int constraint) {
+    enqueue(literal, cardinalityReason(constraint));
+  }
+
+  private void implyParity(int literal, int[] reason) {
+    parityReasons[literal >> 1] = reason;
+    enqueue(literal, PARITY_REASON);
+  }
+
+  // Points `explained` at the literals of the clause which implied a literal, or of the conflict
+  // when the literal is -1, with the implied literal first. A cardinality constraint is explained
+  // by the implied literal and the negations of its literals which were true before it.
+  private void explain(int from, int literal) {
+    if (from >= 0) {
+      explained = clauses.arena;
+      explainedStart = from + ClauseDatabase.HEADER_SIZE;
+      explainedEnd = explainedStart + clauses.arena[from];
+      return;
+    }
+    if (from == PARITY_REASON) {
+      explained = literal == -1 ? parityConflict : parityReasons[literal >> 1];
+      explainedStart = 0;
+      explainedEnd = explained.length;
+      return;
+    }
+
+    explanation.clear();
+    int before = trail.size;
+    if (literal != -1) {
+      explanation.add(literal);
+      before = position[literal >> 1];
+    }
+    for (int q : cardinalities.literals(NO_REASON - 1 - from))
+      if (assignment.valueOf(q) == Assignment.TRUE && position[q >> 1] < before)
+        explanation.add(q ^ 1);
+    explained = explanation.data;
+    explainedStart = 0;
+    explainedEnd = explanation.size;
+  }
+
+  // Returns the reason of a conflict, or NO_CONFLICT once the clauses, the cardinality constraints
+  // and the XOR constraints are all propagated.
+  private int propagate() {
+    int conflict = propagateClauses();
+    while (conflict == NO_CONFLICT && (cardinalities.pending(trail) || xors.pending(trail))) {
+      int constraint = cardinalities.propagate(trail, assignment, implication);
+      if (constraint != CardinalityPropagator.NO_CONFLICT)
+        return cardinalityReason(constraint);
+      parityConflict = xors.propagate(trail, assignment, parityImplication);
+      conflict = parityConflict != null ? PARITY_REASON : propagateClauses();
+    }
+    return conflict;
+  }
+
+  // Returns the offset of a conflicting clause, or NO_CONFLICT once the queue is empty. The literal
+  // implied by a clause is always kept in its first position.
+  private int propagateClauses() {
+    var arena = clauses.arena;
+
+    while (propagationHead < trail.size) {
+      int falseLiteral = trail.data[propagationHead++] ^ 1;
+      var watchers = watches[falseLiteral];
+      var refs = watchers.data;
+      int size = watchers.size;
+      int i = 0;
+      int j = 0;
+      propagations++;
+
+      nextClause:
+      while (i < size) {
+        int clause = refs[i++];
+        int base = clause + ClauseDatabase.HEADER_SIZE;
+
+        if (arena[base] == falseLiteral) {
+          arena[base] = arena[base + 1];
+          arena[base + 1] = falseLiteral;
+        }
+
+        int other = arena[base];
+        if (assignment.valueOf(other) == Assignment.TRUE) {
+          refs[j++] = clause;
+          continue;
+        }
+
+        int end = base + arena[clause];
+        for (int k = base + 2; k < end; k++) {
+          int alternative = arena[k];
+          if (assignment.valueOf(alternative) != Assignment.FALSE) {
+            arena[base + 1] = alternative;
+            arena[k] = falseLiteral;
+            watches[alternative].add(clause);
+            continue nextClause;
+          }
+        }
+
+        refs[j++] = clause;
+        if (!enqueue(other, clause)) {
+          while (i < size)
+            refs[j++] = refs[i++];
+          watchers.size = j;
+          propagationHead = trail.size;
+          return clause;
+        }
+      }
+
+      watchers.size = j;
+    }
+
+    return NO_CONFLICT;
+  }
+
+  private int abstractLevel(int variable) {
+    return 1 << (level[variable] & 31);
+  }
+
+  // Derives the first-UIP clause into `learnt`, with the asserting literal first and a literal of
+  // the backjump level second. Returns the backjump level.
+  private int analyze(int conflict) {
+    int pathCount = 0;
+    int literal = -1;
+    int index = trail.size - 1;
+
+    learnt.clear();
+    learnt.add(-1);
+
+    do {
+      if (conflict >= 0 && clauses.isLearned(conflict))
+        bumpClause(conflict);
+      explain(conflict, literal);
+      for (int k = literal == -1 ? explainedStart : explainedStart + 1; k < explainedEnd; k++) {
+        int q = explained[k];
+        int variable = q >> 1;
+        if (seen[variable] == 0 && level[variable] > 0) {
+          seen[variable] = 1;
+          heuristic.bump(variable);
+          if (level[variable] >= decisionLevel())
+            pathCount++;
+          else
+            learnt.add(q);
+        }
+      }
+
+      while (seen[trail.data[index] >> 1] == 0)
+        index--;
+      literal = trail.data[index--];
+      conflict = reason[literal >> 1];
+      seen[literal >> 1] = 0;
+      pathCount--;
+    } while (pathCount > 0);
+    learnt.data[0] = literal ^ 1;
+
+    minimize();
+
+    int backjump = 0;
+    if (learnt.size > 1) {
+      int max = 1;
+      for (int i = 2; i < learnt.size; i++)
+        if (level[learnt.data[i] >> 1] > level[learnt.data[max] >> 1])
+          max = i;
+      int swap = learnt.data[max];
+      learnt.data[max] = learnt.data[1];
+      learnt.data[1] = swap;
+      backjump = level[swap >> 1];
+    }
+    return backjump;
+  }
+
+  // Removes literals implied by the other literals of the learned clause.
+  private void minimize() {
+    toClear.clear();
+    int levels = 0;
+    for (int i = 0; i < learnt.size; i++) {
+      toClear.add(learnt.data[i]);
+      if (i > 0)
+        levels |= abstractLevel(learnt.data[i] >> 1);
+    }
+
+    int j = 1;
+    for (int i = 1; i < learnt.size; i++) {
+      int literal = learnt.data[i];
+      if (reason[literal >> 1] == NO_REASON || !isRedundant(literal, levels))
+        learnt.data[j++] = literal;
+    }
+    learnt.shrink(j);
+
+    for (int i = 0; i < toClear.size; i++)
+      seen[toClear.data[i] >> 1] = 0;
+  }
+
+  private boolean isRedundant(int literal, int levels) {
+    int top = toClear.size;
+    stack.clear();
+    stack.add(literal);
+
+    while (!stack.isEmpty()) {
+      int implied = stack.pop() ^ 1;
+      explain(reason[implied >> 1], implied);
+      for (int k = explainedStart + 1; k < explainedEnd; k++) {
+        int q = explained[k];
+        int variable = q >> 1;
+        if (seen[variable] == 0 && level[variable] > 0) {
+          if (reason[variable] != NO_REASON && (abstractLevel(variable) & levels) != 0) {
+            seen[variable] = 1;
+            stack.add(q);
+            toClear.add(q);
+          } else {
+            for (int i = top; i < toClear.size; i++)
+              seen[toClear.data[i] >> 1] = 0;
+            toClear.shrink(top);
+            return false;
+          }
+        }
+      }
+    }
+
+    return true;
+  }
+
+  void backtrack(int target) {
+    if (decisionLevel() <= target)
+      return;
+
+    int limit = trailLimits.data[target];
+    cardinalities.backtrack(trail, limit);
+    xors.backtrack(trail, limit);
+    for (int i = trail.size - 1; i >= limit; i--) {
+      int variable = trail.data[i] >> 1;
+      if (phaseSaving)
+        phase[variable] = (byte)(trail.data[i] & 1);
+      assignment.unassign(variable);
+      heuristic.unassigned(variable);
+    }
+    trail.shrink(limit);
+    trailLimits.shrink(target);
+    propagationHead = limit;
+  }
+
+  // The number of distinct decision levels among the given literals.
+  private int literalBlockDistance(int[] literals, int from, int to) {
+    stamp += 1;
+    int distance = 0;
+    for (int i = from; i < to; i++) {
+      int lv = level[literals[i] >> 1];
+      if (levelStamps[lv] != stamp) {
+        levelStamps[lv] = stamp;
+        distance += 1;
+      }
+    }
+    return distance;
+  }
+
+  private void learn(int lbd) {
+    if (learnt.size == 1) {
+      if (exchange != null)
+        exchange.export(learnt.data, 1, 1);
+      enqueue(learnt.data[0], NO_REASON);
+      return;
+    }
+
+    if (exchange != null)
+      exchange.export(learnt.data, learnt.size, lbd);
+
+    int ref = clauses.appendLearned(learnt.data, learnt.size, lbd);
+    clauses.setActivity(ref, clauseIncrement);
+    learned.add(ref);
+    learnedLiterals += learnt.size;
+    attach(ref);
+    enqueue(learnt.data[0], ref);
+  }
+
+  // Collects the literals of a clause not false at decision level 0 into `simplified`. Returns
+  // the offset of the stored clause if at least two literals remain, or NO_REASON otherwise. A
+  // single remaining literal is assigned and an empty clause refutes the clauses.
+  private int simplifyAndAdd(int[] literals, int from, int length, boolean learnedClause, int lbd) {
+    simplified.clear();
+    for (int i = from; i < from + length; i++) {
+      byte value = assignment.valueOf(literals[i]);
+      if (value == Assignment.TRUE)
+        return NO_REASON;
+      if (value == Assignment.UNASSIGNED)
+        simplified.add(literals[i]);
+    }
+
+    if (simplified.size == 0)
+      unsatisfiable = true;
+    else if (simplified.size == 1)
+      enqueue(simplified.data[0], NO_REASON);
+    else {
+      int ref = learnedClause
+          ? clauses.appendLearned(simplified.data, simplified.size, Math.min(lbd, simplified.size))
+          : clauses.append(simplified.data, simplified.size);
+      attach(ref);
+      return ref;
+    }
+    return NO_REASON;
+  }
+
+  // Adds a clause learned by another search. Must be called at decision level 0.
+  private void importClause(int[] literals, int from, int length, int lbd) {
+    int ref = simplifyAndAdd(literals, from, length, true, lbd);
+    if (ref != NO_REASON) {
+      clauses.setImported(ref, true);
+      clauses.setActivity(ref, clauseIncrement);
+      learned.add(ref);
+      learnedLiterals += simplified.size;
+    }
+  }
+
+  // Adds a clause between calls to solve(). Every variable of the clause must already exist.
+  void addClause(int[] literals) {
+    backtrack(0);
+    if (!unsatisfiable)
+      simplifyAndAdd(literals, 0, literals.length, false, 0);
+  }
+
+  // Adds a cardinality constraint between calls to solve(), as stored by
+  // ClauseDatabase.addAtMost(). Every variable of it must already exist.
+  void addAtMost(int bound, int[] literals) {
+    backtrack(0);
+    if (unsatisfiable || propagate() != NO_CONFLICT) {
+      unsatisfiable = true;
+      return;
+    }
+    if (cardinalities.add(bound, literals, assignment, implication)
+        != CardinalityPropagator.NO_CONFLICT)
+      unsatisfiable = true;
+  }
+
+  // Adds an XOR constraint between calls to solve(), as stored by ClauseDatabase.addXor(). Every
+  // variable of it must already exist.
+  void addXor(int[] literals) {
+    backtrack(0);
+    if (unsatisfiable)
+      return;
+    xors.add(literals);
+    if (xors.refuted() || propagate() != NO_CONFLICT)
+      unsatisfiable = true;
+  }
+
+  // Excludes the model found by the last call to solve() by adding the negation of its decisions.
+  // Every other model differs from it in one of the decisions, as the rest was implied by them.
+  void blockModel() {
+    var decisions = new IntVector();
+    for (int i = 0; i < trail.size; i++) {
+      int literal = trail.data[i];
+      if (reason[literal >> 1] == NO_REASON && level[literal >> 1] > 0)
+        decisions.add(literal ^ 1);
+    }
+    addClause(decisions.toArray());
+  }
+
+  // Adds unassigned variables up to the given amount, keeping everything learned so far.
+  void grow(int variables) {
+    if (variables <= this.variables)
+      return;
+
+    int previous = this.variables;
+    this.variables = variables;
+    assignment.grow(variables);
+    watches = Arrays.copyOf(watches, 2 * variables);
+    for (int literal = 2 * previous; literal < watches.length; literal++)
+      watches[literal] = new IntVector();
+    reason = Arrays.copyOf(reason, variables);
+    level = Arrays.copyOf(level, variables);
+    position = Arrays.copyOf(position, variables);
+    cardinalities.grow(variables);
+    xors.grow(variables);
+    parityReasons = Arrays.copyOf(parityReasons, variables);
+    seen = Arrays.copyOf(seen, variables);
+    phase = Arrays.copyOf(phase, variables);
+    Arrays.fill(phase, previous, variables, defaultPhase);
+    levelStamps = Arrays.copyOf(levelStamps, Math.max(levelStamps.length, variables + 1));
+    heuristic.grow(variables);
+  }
+
+  // Receives clauses from other searches through the exchange at every restart.
+  void share(ClauseExchange.Endpoint exchange) {
+    this.exchange = exchange;
+  }
+
+  private void bumpClause(int ref) {
+    if (clauses.isImported(ref)) {
+      usefulImports++;
+      clauses.setImported(ref, false);
+    }
+    float activity = clauses.activity(ref) + clauseIncrement;
+    clauses.setActivity(ref, activity);
+    if (activity > CLAUSE_RESCALE_LIMIT) {
+      for (int i = 0; i < learned.size; i++) {
+        int learnedRef = learned.data[i];
+        clauses.setActivity(learnedRef, clauses.activity(learnedRef) / CLAUSE_RESCALE_LIMIT);
+      }
+      clauseIncrement /= CLAUSE_RESCALE_LIMIT;
+    }
+
+    // Literal block distance only ever improves, as in glucose.
+    int lbd = clauses.lbd(ref);
+    if (lbd > glueLbd) {
+      int base = ref + ClauseDatabase.HEADER_SIZE;
+      int updated = literalBlockDistance(clauses.arena, base, base + clauses.length(ref));
+      if (updated < lbd)
+        clauses.setLbd(ref, updated);
+    }
+  }
+
+  private long learnedBytes() {
+    return 4 * (learnedLiterals + (long)learned.size * ClauseDatabase.HEADER_SIZE);
+  }
+
+  private boolean shouldReduce() {
+    if (conflicts >= nextReduce)
+      return true;
+    return learnedBytes() > learnedMemoryBudget && conflicts - lastReduce >= reduceIncrement;
+  }
+
+  // A clause is locked while it is the reason for an assignment.
+  private boolean isLocked(int ref) {
+    int first = clauses.literal(ref, 0);
+    return reason[first >> 1] == ref && assignment.valueOf(first) == Assignment.TRUE;
+  }
+
+  // Deletes the less useful half of the learned clauses. Clauses are ranked by literal block
+  // distance and then by activity. Glue clauses and clauses which are the reason for a current
+  // assignment are kept.
+  private void reduce() {
+    reductions++;
+    lastReduce = conflicts;
+    nextReduce = conflicts + reduceInterval + reductions * reduceIncrement;
+
+    var candidates = new long[learned.size];
+    int count = 0;
+    for (int i = 0; i < learned.size; i++) {
+      int ref = learned.data[i];
+      int lbd = clauses.lbd(ref);
+      if (lbd <= glueLbd || isLocked(ref))
+        continue;
+      int activity = Float.floatToRawIntBits(clauses.activity(ref));
+      long badness = (long)Math.min(lbd, 2047) << 20 | (Integer.MAX_VALUE - activity) >>> 11;
+      candidates[count++] = badness << 32 | ref;
+    }
+    Arrays.sort(candidates, 0, count);
+
+    for (int i = count / 2; i < count; i++) {
+      int ref = (int)candidates[i];
+      learnedLiterals -= clauses.length(ref);
+      clauses.delete(ref);
+      deletedClauses++;
+    }
+
+    compact();
+  }
+
+  // Reclaims the space of deleted clauses and updates every stored clause offset in place.
+  private void compact() {
+    var old = clauses.compact();
+
+    for (var watchers : watches) {
+      int j = 0;
+      for (int i = 0; i < watchers.size; i++) {
+        int ref = watchers.data[i];
+        if (!ClauseDatabase.isDeleted(old, ref))
+          watchers.data[j++] = ClauseDatabase.relocated(old, ref);
+      }
+      watchers.shrink(j);
+    }
+
+    for (int i = 0; i < trail.size; i++) {
+      int variable = trail.data[i] >> 1;
+      if (reason[variable] >= 0)
+        reason[variable] = ClauseDatabase.relocated(old, reason[variable]);
+    }
+
+    int j = 0;
+    for (int i = 0; i < learned.size; i++) {
+      int ref = learned.data[i];
+      if (!ClauseDatabase.isDeleted(old, ref))
+        learned.data[j++] = ClauseDatabase.relocated(old, ref);
+    }
+    learned.shrink(j);
+  }
+
+  Result solve() {
+    return solve(new int[0]);
+  }
+
+  // Searches for a model in which all of the given literals are true. The assumptions are decided
+  // first, in order, and UNSAT is returned as soon as one of them is implied false. Learned clauses
+  // never depend on the assumptions, so the search may be reused with different ones.
+  Result solve(int[] assumptions) {
+    failed.clear();
+    if (unsatisfiable)
+      return Result.UNSAT;
+    backtrack(0);
+    if (levelStamps.length <= variables + assumptions.length)
+      levelStamps = new int[variables + assumptions.length + 1];
+
+    while (true) {
+      if (interrupted)
+        return Result.UNKNOWN;
+
+      int conflict = propagate();
+      if (conflict != NO_CONFLICT) {
+        conflicts++;
+        if (decisionLevel() == 0) {
+          unsatisfiable = true;
+          return Result.UNSAT;
+        }
+        int backjump = analyze(conflict);
+        int lbd = literalBlockDistance(learnt.data, 0, learnt.size);
+        restartPolicy.conflict(lbd);
+        backtrack(backjump);
+        learn(lbd);
+        heuristic.decay();
+        clauseIncrement /= CLAUSE_DECAY;
+        if (shouldReduce())
+          reduce();
+      } else if (restartPolicy.shouldRestart()) {
+        restarts++;
+        restartPolicy.restarted();
+        backtrack(0);
+        if (exchange != null) {
+          exchange.receive(importer);
+          if (unsatisfiable)
+            return Result.UNSAT;
+        }
+      } else {
+        int literal = -1;
+        while (literal == -1 && decisionLevel() < assumptions.length) {
+          int assumption = assumptions[decisionLevel()];
+          byte value = assignment.valueOf(assumption);
+          if (value == Assignment.FALSE) {
+            analyzeFinal(assumption);
+            return Result.UNSAT;
+          }
+          if (value == Assignment.TRUE)
+            trailLimits.add(trail.size);
+          else
+            literal = assumption;
+        }
+
+        if (literal == -1) {
+          int variable = heuristic.next(assignment);
+          if (variable == -1)
+            return Result.SAT;
+          literal = variable << 1 | phase[variable];
+        }
+
+        decisions++;
+        trailLimits.add(trail.size);
+        enqueue(literal, NO_REASON);
+      }
+    }
+  }
+
+  // Collects the assumptions which together imply that the given assumption is false, and the
+  // assumption itself, into `failed`. Every decision on the trail is an assumption at this point.
+  private void analyzeFinal(int assumption) {
+    failed.add(assumption);
+    if (decisionLevel() == 0)
+      return;
+
+    seen[assumption >> 1] = 1;
+    for (int i = trail.size - 1; i >= trailLimits.data[0]; i--) {
+      int variable = trail.data[i] >> 1;
+      if (seen[variable] == 0)
+        continue;
+
+      if (reason[variable] == NO_REASON)
+        failed.add(trail.data[i]);
+      else {
+        explain(reason[variable], trail.data[i]);
+        for (int k = explainedStart + 1; k < explainedEnd; k++)
+          if (level[explained[k] >> 1] > 0)
+            seen[explained[k] >> 1] = 1;
+      }
+      seen[variable] = 0;
+    }
+    seen[assumption >> 1] = 0;
+  }
+
+  // After solve() returned UNSAT, a subset of the assumptions which cannot all be true. Empty if
+  // the clauses are unsatisfiable regardless of the assumptions.
+  int[] failedAssumptions() {
+    return failed.toArray();
+  }
+
+  // Whether the clauses were shown unsatisfiable regardless of any assumptions.
+  boolean refuted() {
+    return unsatisfiable;
+  }
+
+  // Propagates the unit clauses at decision level 0. Returns false if that refutes the clauses.
+  boolean propagateUnits() {
+    backtrack(0);
+    if (!unsatisfiable && propagate() != NO_CONFLICT)
+      unsatisfiable = true;
+    return !unsatisfiable;
+  }
+
+  boolean isAssigned(int variable) {
+    return assignment.isAssigned(variable);
+  }
+
+  // Decides the literal at a new decision level and propagates it. Returns false, with the level
+  // undone, if that leads to a conflict.
+  boolean assume(int literal) {
+    trailLimits.add(trail.size);
+    if (enqueue(literal, NO_REASON) && propagate() == NO_CONFLICT)
+      return true;
+    backtrack(decisionLevel() - 1);
+    return false;
+  }
+
+  // The number of assignments implied by the literal, or -1 if it leads to a conflict. Nothing is
+  // left assigned.
+  int lookahead(int literal) {
+    if (assignment.valueOf(literal) != Assignment.UNASSIGNED)
+      return assignment.valueOf(literal) == Assignment.TRUE ? 0 : -1;
+    int start = trail.size;
+    boolean consistent = assume(literal);
+    int implied = trail.size - start;
+    if (!consistent)
+      return -1;
+    backtrack(decisionLevel() - 1);
+    return implied;
+  }
+
+  // Makes a running or future solve() return UNKNOWN. Safe to call from any thread.
+  void interrupt() {
+    interrupted = true;
+  }
+
+  // Valid after solve() returned SAT.
+  Assignment model() {
+    return assignment.copy();
+  }
+
+  SolverStatistics statistics() {
+    int glue = 0;
+    for (int i = 0; i < learned.size; i++)
+      if (clauses.lbd(learned.data[i]) <= glueLbd)
+        glue++;
+    return new SolverStatistics(
+        conflicts, decisions, propagations, restarts, reductions,
+        learned.size, glue, deletedClauses, learnedBytes(),
+        exchange == null ? 0 : exchange.exported(),
+        exchange == null ? 0 : exchange.imported(),
+        usefulImports);
+  }
+}
@@ -0,0 +1,53 @@
+package dimple;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableBiMap;
+
+// Collects clauses into a clause database, along with the names of their variables, and creates
+// solvers of them. Cardinality and XOR constraints are kept as they are, and propagated natively.
+public final class ClauseBuilder implements ClauseSink {
+  private final BiMap<String, Integer> variables = HashBiMap.create();
+  private final ClauseDatabase clauses = new ClauseDatabase();
+
+  @Override
+  public int variable(String name) {
+    var variable = variables.get(name);
+    if (variable == null) {
+      variable = variables.size();
+      variables.put(name, variable);
+    }
+    return variable;
+  }
+
+  @Override
+  public void addClause(int... literals) {
+    clauses.add(literals);
+  }
+
+  @Override
+  public void addAtMost(int bound, int... literals) {
+    clauses.addAtMost(bound, literals);
+  }
+
+  @Override
+  public void addXor(int... literals) {
+    clauses.addXor(literals);
+  }
+
+  public ImmutableBiMap<String, Integer> variables() {
+    return ImmutableBiMap.copyOf(variables);
+  }
+
+  public ClauseDatabase clauses() {
+    return clauses;
+  }
+
+  public Solver createSolver() {
+    return createSolver(SolverOptions.defaults());
+  }
+
+  public Solver createSolver(SolverOptions options) {
+    return new Solver(variables(), clauses, options);
+  }
+}
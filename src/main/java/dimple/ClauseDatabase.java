@@ -0,0 +1,306 @@
+package dimple;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Clauses are stored back to back in a single int[] arena. Each clause is a header followed by its
+// literals, and is referred to by the offset of its header. The header holds the length of the
+// clause, its flags and literal block distance, and the activity of learned clauses.
+//
+// Cardinality constraints, which bound the amount of their literals which are true, are kept
+// apart from the clauses and propagated natively by the searches, see CardinalityPropagator. So
+// are XOR constraints, which require an odd amount of their literals to be true, see XorPropagator.
+public final class ClauseDatabase {
+  static final int HEADER_SIZE = 3;
+
+  private static final int LENGTH = 0;
+  private static final int FLAGS = 1;
+  private static final int ACTIVITY = 2;
+
+  private static final int LEARNED = 1;
+  private static final int DELETED = 1 << 1;
+  private static final int IMPORTED = 1 << 2;
+  private static final int LBD_SHIFT = 8;
+
+  int[] arena;
+  int end;
+
+  private int clauses;
+  private int variables;
+  private boolean hasEmptyClause;
+  private final List<int[]> cardinalityLiterals;
+  private final IntVector cardinalityBounds;
+  private final List<int[]> xorLiterals;
+
+  public ClauseDatabase() {
+    this(0);
+  }
+
+  public ClauseDatabase(int variables) {
+    this.arena = new int[1024];
+    this.end = 0;
+    this.clauses = 0;
+    this.variables = variables;
+    this.hasEmptyClause = false;
+    this.cardinalityLiterals = new ArrayList<>();
+    this.cardinalityBounds = new IntVector();
+    this.xorLiterals = new ArrayList<>();
+  }
+
+  private ClauseDatabase(ClauseDatabase other) {
+    this.arena = Arrays.copyOf(other.arena, other.end);
+    this.end = other.end;
+    this.clauses = other.clauses;
+    this.variables = other.variables;
+    this.hasEmptyClause = other.hasEmptyClause;
+    this.cardinalityLiterals = new ArrayList<>(other.cardinalityLiterals);
+    this.cardinalityBounds = new IntVector(other.cardinalityBounds.size);
+    for (int i = 0; i < other.cardinalityBounds.size; i++)
+      cardinalityBounds.add(other.cardinalityBounds.get(i));
+    this.xorLiterals = new ArrayList<>(other.xorLiterals);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > arena.length)
+      arena = Arrays.copyOf(arena, Math.max(capacity, arena.length << 1));
+  }
+
+  // Duplicate literals are removed, clauses are otherwise stored as given.
+  public int add(int... literals) {
+    var sorted = literals.clone();
+    Arrays.sort(sorted);
+
+    int length = 0;
+    for (int i = 0; i < sorted.length; i++)
+      if (i == 0 || sorted[i] != sorted[i - 1])
+        sorted[length++] = sorted[i];
+
+    return append(sorted, length);
+  }
+
+  // Stores the literals exactly as given, the order of the first two literals is preserved.
+  int append(int[] literals, int length) {
+    int ref = end;
+    ensureCapacity(end + HEADER_SIZE + length);
+    arena[ref + LENGTH] = length;
+    arena[ref + FLAGS] = 0;
+    arena[ref + ACTIVITY] = 0;
+    System.arraycopy(literals, 0, arena, ref + HEADER_SIZE, length);
+    end += HEADER_SIZE + length;
+
+    for (int i = 0; i < length; i++)
+      variables = Math.max(variables, Literals.variable(literals[i]) + 1);
+    hasEmptyClause |= length == 0;
+    clauses += 1;
+    return ref;
+  }
+
+  // Adds the constraint that at most bound of the literals are true, a literal given twice counting
+  // twice. A bound of zero is stored as unit clauses and a bound of one less than the amount of
+  // literals as a single clause, while a constraint which always holds is dropped.
+  public void addAtMost(int bound, int... literals) {
+    Preconditions.checkArgument(bound >= 0, "Bound must not be negative");
+    for (int literal : literals)
+      variables = Math.max(variables, Literals.variable(literal) + 1);
+    if (bound >= literals.length)
+      return;
+    if (bound == 0) {
+      for (int literal : literals)
+        add(literal ^ 1);
+      return;
+    }
+
+    if (bound == literals.length - 1) {
+      var negated = new int[literals.length];
+      for (int i = 0; i < literals.length; i++)
+        negated[i] = literals[i] ^ 1;
+      add(negated);
+    } else {
+      cardinalityLiterals.add(literals.clone());
+      cardinalityBounds.add(bound);
+    }
+  }
+
+  public int cardinalityCount() {
+    return cardinalityBounds.size;
+  }
+
+  int cardinalityBound(int constraint) {
+    return cardinalityBounds.get(constraint);
+  }
+
+  // Shared with the database, and must not be modified.
+  int[] cardinalityLiterals(int constraint) {
+    return cardinalityLiterals.get(constraint);
+  }
+
+  // Adds the constraint that an odd amount of the literals is true. A variable given twice cancels
+  // out, and negating a literal flips the parity required of the rest. Constraints over at most two
+  // variables are stored as clauses, the others over distinct variables in increasing order, of
+  // which only the first may be negated.
+  public void addXor(int... literals) {
+    var variables = new int[literals.length];
+    boolean odd = true;
+    for (int i = 0; i < literals.length; i++) {
+      variables[i] = Literals.variable(literals[i]);
+      odd ^= Literals.isNegated(literals[i]);
+      this.variables = Math.max(this.variables, variables[i] + 1);
+    }
+    Arrays.sort(variables);
+
+    int length = 0;
+    for (int i = 0; i < variables.length; i++)
+      if (length > 0 && variables[length - 1] == variables[i])
+        length--;
+      else
+        variables[length++] = variables[i];
+
+    if (length == 0) {
+      if (odd)
+        add();
+    } else if (length == 1)
+      add(Literals.of(variables[0], !odd));
+    else if (length == 2) {
+      add(Literals.of(variables[0], false), Literals.of(variables[1], !odd));
+      add(Literals.of(variables[0], true), Literals.of(variables[1], odd));
+    } else {
+      var stored = new int[length];
+      for (int i = 0; i < length; i++)
+        stored[i] = Literals.of(variables[i], i == 0 && !odd);
+      xorLiterals.add(stored);
+    }
+  }
+
+  public int xorCount() {
+    return xorLiterals.size();
+  }
+
+  // Shared with the database, and must not be modified.
+  int[] xorLiterals(int constraint) {
+    return xorLiterals.get(constraint);
+  }
+
+  int appendLearned(int[] literals, int length, int lbd) {
+    int ref = append(literals, length);
+    arena[ref + FLAGS] = LEARNED | lbd << LBD_SHIFT;
+    return ref;
+  }
+
+  public ClauseDatabase copy() {
+    return new ClauseDatabase(this);
+  }
+
+  public int size() {
+    return clauses;
+  }
+
+  public int variables() {
+    return variables;
+  }
+
+  public boolean hasEmptyClause() {
+    return hasEmptyClause;
+  }
+
+  int first() {
+    return 0;
+  }
+
+  int next(int ref) {
+    return ref + HEADER_SIZE + arena[ref + LENGTH];
+  }
+
+  int end() {
+    return end;
+  }
+
+  int length(int ref) {
+    return arena[ref + LENGTH];
+  }
+
+  int literal(int ref, int index) {
+    return arena[ref + HEADER_SIZE + index];
+  }
+
+  int[] literals(int ref) {
+    int start = ref + HEADER_SIZE;
+    return Arrays.copyOfRange(arena, start, start + arena[ref + LENGTH]);
+  }
+
+  boolean isLearned(int ref) {
+    return (arena[ref + FLAGS] & LEARNED) != 0;
+  }
+
+  boolean isDeleted(int ref) {
+    return isDeleted(arena, ref);
+  }
+
+  void delete(int ref) {
+    arena[ref + FLAGS] |= DELETED;
+    clauses -= 1;
+  }
+
+  // Set on clauses learned by another search until they first take part in a conflict.
+  boolean isImported(int ref) {
+    return (arena[ref + FLAGS] & IMPORTED) != 0;
+  }
+
+  void setImported(int ref, boolean imported) {
+    if (imported)
+      arena[ref + FLAGS] |= IMPORTED;
+    else
+      arena[ref + FLAGS] &= ~IMPORTED;
+  }
+
+  int lbd(int ref) {
+    return arena[ref + FLAGS] >>> LBD_SHIFT;
+  }
+
+  void setLbd(int ref, int lbd) {
+    arena[ref + FLAGS] = (arena[ref + FLAGS] & ((1 << LBD_SHIFT) - 1)) | lbd << LBD_SHIFT;
+  }
+
+  float activity(int ref) {
+    return Float.intBitsToFloat(arena[ref + ACTIVITY]);
+  }
+
+  void setActivity(int ref, float activity) {
+    arena[ref + ACTIVITY] = Float.floatToRawIntBits(activity);
+  }
+
+  // Moves all clauses which were not deleted into a new arena, in their original order. Returns
+  // the old arena, in which the header of every moved clause records its new offset.
+  int[] compact() {
+    int live = 0;
+    for (int ref = first(); ref < end; ref = next(ref))
+      if (!isDeleted(ref))
+        live += HEADER_SIZE + arena[ref + LENGTH];
+
+    var old = arena;
+    var compacted = new int[Math.max(live, 1024)];
+    int position = 0;
+    for (int ref = first(); ref < end; ref = next(ref)) {
+      if (isDeleted(ref))
+        continue;
+      int size = HEADER_SIZE + old[ref + LENGTH];
+      System.arraycopy(old, ref, compacted, position, size);
+      old[ref + ACTIVITY] = position;
+      position += size;
+    }
+
+    arena = compacted;
+    end = position;
+    return old;
+  }
+
+  static boolean isDeleted(int[] arena, int ref) {
+    return (arena[ref + FLAGS] & DELETED) != 0;
+  }
+
+  // The new offset of a clause which was moved by compact().
+  static int relocated(int[] old, int ref) {
+    return old[ref + ACTIVITY];
+  }
+}
@@ -0,0 +1,81 @@
+package dimple;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+
+// Encodes cardinality and XOR constraints into clauses over literals made by Literals.of(), for
+// consumers which take clauses alone. It may be extended from any package: a subclass numbers the
+// fresh variables the encodings need, and receives every clause in order. DimacsWriter extends it,
+// and CardinalityEncoder encodes formulas with it by numbering them, so both agree on the encoding.
+public abstract class ClauseEncoder {
+  // XORs of more literals are split, as each takes 2^(n - 1) clauses.
+  private static final int XOR_LENGTH = 4;
+
+  // A variable not used before, as its positive literal.
+  protected abstract int fresh();
+
+  protected abstract void clause(int... literals);
+
+  // At most bound of the literals are true, by a sequential counter. The ith counter holds
+  // min(bound, i + 1) variables, the jth of which is implied when at least j + 1 of the first
+  // i + 1 literals are true. A literal true once its predecessors already count to the bound is a
+  // conflict.
+  public void atMost(int bound, int... literals) {
+    Preconditions.checkArgument(bound >= 0, "Bound must not be negative");
+    if (bound == 0) {
+      for (int literal : literals)
+        clause(Literals.negate(literal));
+      return;
+    }
+    var previous = new int[0];
+    for (int i = 0; i < literals.length; i++) {
+      int literal = Literals.negate(literals[i]);
+      if (previous.length == bound)
+        clause(literal, Literals.negate(previous[bound - 1]));
+      if (i == literals.length - 1)
+        break;
+
+      var counter = new int[Math.min(bound, i + 1)];
+      for (int j = 0; j < counter.length; j++)
+        counter[j] = fresh();
+      clause(literal, counter[0]);
+      for (int j = 0; j < previous.length; j++)
+        clause(Literals.negate(previous[j]), counter[j]);
+      for (int j = 1; j < counter.length; j++)
+        clause(literal, Literals.negate(previous[j - 1]), counter[j]);
+      previous = counter;
+    }
+  }
+
+  // An odd amount of the literals is true. The first XOR_LENGTH - 1 literals are replaced by a
+  // fresh variable equal to their parity, which goes last, until few enough are left.
+  public void xor(int... literals) {
+    var queue = new IntVector(literals.length);
+    for (int literal : literals)
+      queue.add(literal);
+    int head = 0;
+    while (queue.size - head > XOR_LENGTH) {
+      int parity = fresh();
+      var part = new int[XOR_LENGTH];
+      for (int i = 0; i < XOR_LENGTH - 1; i++)
+        part[i] = queue.get(head++);
+      part[XOR_LENGTH - 1] = Literals.negate(parity);
+      shortXor(part);
+      queue.add(parity);
+    }
+    shortXor(Arrays.copyOfRange(queue.data, head, queue.size));
+  }
+
+  // Excludes each assignment of an even amount of true literals by a clause.
+  private void shortXor(int[] literals) {
+    int n = literals.length;
+    for (int values = 0; values < 1 << n; values++) {
+      if (Integer.bitCount(values) % 2 == 1)
+        continue;
+      var clause = new int[n];
+      for (int i = 0; i < n; i++)
+        clause[i] = (values >> i & 1) != 0 ? Literals.negate(literals[i]) : literals[i];
+      clause(clause);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package dimple;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Shares short learned clauses between searches running on different threads. Every search owns a
+// bounded ring buffer which only it writes to, and which all other searches read from without
+// locking. A reader which falls more than a buffer behind skips the clauses it missed. Since every
+// learned clause is implied by the original formula, a missed or duplicated clause is harmless.
+final class ClauseExchange {
+  private final Ring[] rings;
+  private final int maxSize;
+  private final int maxLbd;
+
+  private static final class Ring {
+    private final AtomicReferenceArray<int[]> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+
+    Ring(int capacity) {
+      this.slots = new AtomicReferenceArray<>(capacity);
+      this.mask = capacity - 1;
+    }
+
+    // Only ever called by the owning thread.
+    void publish(int[] clause) {
+      long position = head.get();
+      slots.set((int)(position & mask), clause);
+      head.lazySet(position + 1);
+    }
+  }
+
+  // The view of the exchange of a single search. Not thread safe, owned by the search's thread.
+  final class Endpoint {
+    private final int id;
+    private final long[] cursors;
+    private long exported;
+    private long imported;
+
+    private Endpoint(int id) {
+      this.id = id;
+      this.cursors = new long[rings.length];
+    }
+
+    // Shares a learned clause if it is short enough or of low enough literal block distance.
+    void export(int[] literals, int length, int lbd) {
+      if (length > 2 && (length > maxSize || lbd > maxLbd))
+        return;
+
+      // The first element of a shared clause is its literal block distance.
+      var clause = new int[length + 1];
+      clause[0] = lbd;
+      System.arraycopy(literals, 0, clause, 1, length);
+      rings[id].publish(clause);
+      exported++;
+    }
+
+    // Passes every clause shared by other searches since the last call to the given consumer.
+    void receive(ClauseConsumer consumer) {
+      for (int producer = 0; producer < rings.length; producer++) {
+        if (producer == id)
+          continue;
+
+        var ring = rings[producer];
+        long head = ring.head.get();
+        long cursor = Math.max(cursors[producer], head - ring.slots.length());
+        for (; cursor < head; cursor++) {
+          var clause = ring.slots.get((int)(cursor & ring.mask));
+          consumer.accept(clause, 1, clause.length - 1, clause[0]);
+          imported++;
+        }
+        cursors[producer] = head;
+      }
+    }
+
+    long exported() {
+      return exported;
+    }
+
+    long imported() {
+      return imported;
+    }
+  }
+
+  @FunctionalInterface
+  interface ClauseConsumer {
+    void accept(int[] literals, int from, int length, int lbd);
+  }
+
+  ClauseExchange(int searches, int capacity, int maxSize, int maxLbd) {
+    int ringCapacity = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    this.rings = new Ring[searches];
+    for (int i = 0; i < searches; i++)
+      rings[i] = new Ring(ringCapacity);
+    this.maxSize = maxSize;
+    this.maxLbd = maxLbd;
+  }
+
+  Endpoint endpoint(int id) {
+    return new Endpoint(id);
+  }
+}
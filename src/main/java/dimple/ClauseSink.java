@@ -0,0 +1,33 @@
+package dimple;
+
+import com.google.common.base.Preconditions;
+
+// Receives clauses and constraints over named variables. A name is interned once by variable(),
+// and its variable is referred to by number from then on, in literals made by Literals.of(). This
+// lets problems be reduced to clauses without building formulas or text along the way.
+public interface ClauseSink {
+  // The variable of a name, a new one the first time the name is given.
+  int variable(String name);
+
+  void addClause(int... literals);
+
+  // At most bound of the literals are true.
+  void addAtMost(int bound, int... literals);
+
+  // Exactly bound of the literals are true, that is at most bound of them and at most the rest of
+  // their negations.
+  default void addExactly(int bound, int... literals) {
+    Preconditions.checkArgument(bound <= literals.length, "Bound exceeds the literals");
+    addAtMost(bound, literals);
+    var negated = new int[literals.length];
+    for (int i = 0; i < literals.length; i++)
+      negated[i] = Literals.negate(literals[i]);
+    addAtMost(literals.length - bound, negated);
+  }
+
+  // An odd amount of the literals is true.
+  void addXor(int... literals);
+
+  // Describes the clauses which follow, for sinks which are read by people.
+  default void comment(String text) {}
+}
@@ -1,52 +1,154 @@
 package dimple;
 
-import com.google.common.io.CharStreams;
-import dimple.formula.Formulas;
 import dimple.sexp.ParseException;
 import dimple.sexp.Sexpressions;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
 @Command(description = "A simiple SAT solver",
          name = "dimple", mixinStandardHelpOptions = true, version = "dimple 0.1")
 public class Cli implements Callable<Integer> {
+  @Spec
+  private CommandSpec spec;
+
   @Parameters(index = "0", paramLabel = "FILE", description = "File to solve.")
   private File file;
 
   @Option(names = { "-a", "--all" }, description = "Print all solutions.")
   private boolean all = false;
 
+  enum Format { AUTO, SEXP, DIMACS }
+
+  @Option(names = { "--format" },
+          description = "Format of the input, detected by default: ${COMPLETION-CANDIDATES}.")
+  private Format format = Format.AUTO;
+
+  @Option(names = { "--export" }, paramLabel = "OUT",
+          description = "Write the clauses of the input to OUT in DIMACS CNF instead of solving.")
+  private File export;
+
+  @Option(names = { "--strategy" }, description = "Search strategy: ${COMPLETION-CANDIDATES}.")
+  private SolverOptions.Strategy strategy = SolverOptions.Strategy.CDCL;
+
+  @Option(names = { "--encoding" },
+          description = "Encoding of formulas not in CNF: ${COMPLETION-CANDIDATES}.")
+  private SolverOptions.Encoding encoding = SolverOptions.Encoding.PLAISTED_GREENBAUM;
+
+  @Option(names = { "--cardinality-encoding" },
+          description = "Encoding of cardinality constraints: ${COMPLETION-CANDIDATES}.")
+  private SolverOptions.CardinalityEncoding cardinalityEncoding =
+      SolverOptions.CardinalityEncoding.NATIVE;
+
+  @Option(names = { "--no-gaussian-elimination" },
+          description = "Encode XOR constraints into clauses instead of eliminating them.")
+  private boolean noGaussianElimination = false;
+
+  @Option(names = { "--static-order" },
+          description = "Branch on variables in the order they appear in the input.")
+  private boolean staticOrder = false;
+
+  @Option(names = { "--statistics" }, description = "Print search statistics to stderr.")
+  private boolean printStatistics = false;
+
+  @Option(names = { "-t", "--threads" }, paramLabel = "N",
+          description = "Search on N threads in parallel.")
+  private int threads = 1;
+
+  @Option(names = { "--cube-depth" }, paramLabel = "D",
+          description = "Split into at most 2^D cubes with the CUBE_AND_CONQUER strategy.")
+  private int cubeDepth = 8;
+
+  @Option(names = { "--no-sharing" },
+          description = "Do not exchange learned clauses between parallel searches.")
+  private boolean noSharing = false;
+
+  enum Restarts { LUBY, GLUCOSE, NONE }
+
+  @Option(names = { "--restarts" }, description = "Restart policy: ${COMPLETION-CANDIDATES}.")
+  private Restarts restarts = Restarts.LUBY;
+
+  @Option(names = { "--no-phase-saving" }, description = "Do not reuse previous polarities.")
+  private boolean noPhaseSaving = false;
+
+  @Option(names = { "--no-preprocessing" },
+          description = "Search the clauses without simplifying them first.")
+  private boolean noPreprocessing = false;
+
+  private Supplier<RestartPolicy> restartPolicy() {
+    switch (restarts) {
+      case GLUCOSE:
+        return GlucoseRestarts::new;
+      case NONE:
+        return RestartPolicy::never;
+      default:
+        return LubyRestarts::new;
+    }
+  }
+
+  // The builder checks the values of the options, and a value it rejects is a usage error.
+  private SolverOptions options() {
+    try {
+      return SolverOptions.builder()
+          .strategy(strategy)
+          .encoding(encoding)
+          .cardinalityEncoding(cardinalityEncoding)
+          .gaussianElimination(!noGaussianElimination)
+          .heuristic(staticOrder ? StaticOrderHeuristic::new : VsidsHeuristic::new)
+          .restarts(restartPolicy())
+          .phaseSaving(!noPhaseSaving)
+          .threads(threads)
+          .sharing(!noSharing)
+          .cubeDepth(cubeDepth)
+          .preprocessing(!noPreprocessing)
+          .build();
+    } catch (IllegalArgumentException exception) {
+      throw new ParameterException(spec.commandLine(), exception.getMessage());
+    }
+  }
+
   private static void printSolution(Map<String, Boolean> solution) {
     for (Map.Entry<String, Boolean> entry : solution.entrySet()) {
       System.out.println(entry.getKey() + ": " + entry.getValue());
     }
   }
 
-  private Optional<Map<String, Boolean>> solveFor(InputStream input) throws Exception {
-    String program = CharStreams.toString(new InputStreamReader(input));
-    var solver = Formulas.createSolver(Sexpressions.compile(program));
-    return solver.solve();
+  // Either format may be compressed with gzip. The input is opened once, since a pipe cannot be
+  // read again after its format is detected. Only a regular file is opened again, to be mapped.
+  private Solver createSolver() throws IOException {
+    var path = file.toPath();
+    try (var input = Dimacs.open(path)) {
+      if (format == Format.SEXP || format == Format.AUTO && !Dimacs.isDimacs(input))
+        return Sexpressions.createSolver(new InputStreamReader(input), options());
+      if (Files.isRegularFile(path))
+        return Dimacs.createSolver(path, options());
+      return Dimacs.createSolver(input, options());
+    }
   }
 
-  private Optional<List<Map<String, Boolean>>> solveAllFor(InputStream input) throws Exception {
-    String program = CharStreams.toString(new InputStreamReader(input));
-    var solver = Formulas.createSolver(Sexpressions.compile(program));
-    return solver.solveAll();
+  private Optional<Map<String, Boolean>> solution() throws Exception {
+    var solver = createSolver();
+    var solution = solver.solve();
+    if (printStatistics)
+      System.err.println(solver.statistics());
+    return solution;
   }
 
   private int solve() throws Exception {
-    var solution = solveFor(new FileInputStream(file));
+    var solution = solution();
 
     if (solution.isPresent()) {
       System.out.println("SAT");
@@ -58,13 +160,14 @@ public class Cli implements Callable<Integer> {
     }
   }
 
+  // Prints every solution as soon as it is found.
   private int solveAll() throws Exception {
-    var solutions = solveAllFor(new FileInputStream(file));
+    var solutions = createSolver().solutions().iterator();
 
-    if (solutions.isPresent()) {
+    if (solutions.hasNext()) {
       System.out.println("SAT");
-      for (var solution : solutions.get()) {
-        printSolution(solution);
+      while (solutions.hasNext()) {
+        printSolution(solutions.next());
         System.out.println("---");
       }
       return 0;
@@ -74,10 +177,19 @@ public class Cli implements Callable<Integer> {
     }
   }
 
+  private int export() throws Exception {
+    try (var writer = Files.newBufferedWriter(export.toPath())) {
+      createSolver().writeDimacs(writer);
+    }
+    return 0;
+  }
+
   @Override
   public Integer call() throws Exception {
     try {
-      if (all)
+      if (export != null)
+        return export();
+      else if (all)
         return solveAll();
       else
         return solve();
@@ -87,7 +199,13 @@ public class Cli implements Callable<Integer> {
     }
   }
 
+  // Enum values may be given in any case, as in --format dimacs. Printing help or the version
+  // leaves no result, and an invalid option exits after printing the usage.
   public static void main(String[] args) {
-    System.exit(CommandLine.call(new Cli(), args));
+    var commandLine = new CommandLine(new Cli()).setCaseInsensitiveEnumValuesAllowed(true);
+    var usageErrors = new CommandLine.DefaultExceptionHandler<List<Object>>().andExit(2);
+    List<Object> results =
+        commandLine.parseWithHandlers(new CommandLine.RunLast(), usageErrors, args);
+    System.exit(results == null || results.isEmpty() ? 0 : (Integer)results.get(0));
   }
 }
@@ -0,0 +1,138 @@
+package dimple;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Cube and conquer. The formula is split into cubes by lookahead, and every cube is then satisfied
+// or refuted by a conflict driven search which assumes it. Cubes are solved as fork/join tasks, so
+// idle threads steal work from busy ones. Every thread reuses a single search, and with it the
+// clauses it learned, for all the cubes it solves. The first satisfiable cube stops all others.
+final class CubeSolver {
+  private final int variables;
+  private final ClauseDatabase clauses;
+  private final SolverOptions options;
+
+  private final Queue<CdclSearch> searches;
+  private final ThreadLocal<CdclSearch> search;
+  private final AtomicReference<Assignment> model;
+  private volatile boolean finished;
+  private volatile boolean refuted;
+  private int cubes;
+
+  CubeSolver(int variables, ClauseDatabase clauses, SolverOptions options) {
+    this.variables = variables;
+    this.clauses = clauses;
+    this.options = options;
+    this.searches = new ConcurrentLinkedQueue<>();
+    this.search = ThreadLocal.withInitial(this::createSearch);
+    this.model = new AtomicReference<>();
+    this.finished = false;
+    this.refuted = false;
+  }
+
+  private CdclSearch createSearch() {
+    var search = new CdclSearch(variables, clauses, options);
+    searches.add(search);
+    return search;
+  }
+
+  private final class CubeTask extends RecursiveTask<Result> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<int[]> cubes;
+    private final int from;
+    private final int to;
+
+    CubeTask(List<int[]> cubes, int from, int to) {
+      this.cubes = cubes;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Result compute() {
+      if (finished)
+        return Result.UNKNOWN;
+      if (to - from == 1)
+        return solveCube(cubes.get(from));
+
+      int middle = (from + to) >>> 1;
+      var left = new CubeTask(cubes, from, middle);
+      left.fork();
+      var right = new CubeTask(cubes, middle, to).compute();
+      return combine(left.join(), right);
+    }
+  }
+
+  static Result combine(Result left, Result right) {
+    if (left == Result.SAT || right == Result.SAT)
+      return Result.SAT;
+    if (left == Result.UNSAT && right == Result.UNSAT)
+      return Result.UNSAT;
+    return Result.UNKNOWN;
+  }
+
+  private Result solveCube(int[] cube) {
+    var search = this.search.get();
+    if (finished)
+      return Result.UNKNOWN;
+
+    var result = search.solve(cube);
+    if (result == Result.SAT) {
+      model.compareAndSet(null, search.model());
+      finish();
+    } else if (result == Result.UNSAT && search.refuted()) {
+      refuted = true;
+      finish();
+    }
+    return result;
+  }
+
+  private void finish() {
+    finished = true;
+    for (var search : searches)
+      search.interrupt();
+  }
+
+  Result solve() {
+    var split = new CubeSplitter(variables, clauses, options).split(options.cubeDepth());
+    cubes = split.size();
+    if (split.isEmpty())
+      return Result.UNSAT;
+
+    var pool = new ForkJoinPool(options.threads());
+    Result result;
+    try {
+      result = pool.invoke(new CubeTask(split, 0, split.size()));
+    } finally {
+      finish();
+      pool.shutdown();
+    }
+
+    if (model.get() != null)
+      return Result.SAT;
+    return refuted ? Result.UNSAT : result;
+  }
+
+  // Valid after solve() returned SAT.
+  Assignment model() {
+    return model.get();
+  }
+
+  // The number of cubes the formula was split into.
+  int cubes() {
+    return cubes;
+  }
+
+  // Statistics summed over the searches of all threads.
+  SolverStatistics statistics() {
+    var statistics = SolverStatistics.EMPTY;
+    for (var search : searches)
+      statistics = statistics.plus(search.statistics());
+    return statistics;
+  }
+}
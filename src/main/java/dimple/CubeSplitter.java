@@ -0,0 +1,110 @@
+package dimple;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Splits a formula into cubes, partial assignments which together cover every model. Each split
+// branches on the variable whose two values imply the most assignments, found by looking ahead on
+// the unassigned variables which occur most often. A value which leads to a conflict implies the
+// other value, and a cube in which both values of a variable conflict is dropped.
+final class CubeSplitter {
+  private static final int CANDIDATES = 32;
+  private static final int REFUTED = -2;
+  private static final int NONE = -1;
+
+  private final CdclSearch search;
+  private final int[] order;
+  private final IntVector cube;
+  private final List<int[]> cubes;
+
+  CubeSplitter(int variables, ClauseDatabase clauses, SolverOptions options) {
+    this.search = new CdclSearch(variables, clauses, options);
+    int total = Math.max(variables, clauses.variables());
+
+    var occurrences = new int[total];
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref))
+      for (int i = 0; i < clauses.length(ref); i++)
+        occurrences[Literals.variable(clauses.literal(ref, i))]++;
+    this.order = IntStream.range(0, total)
+        .boxed()
+        .sorted(Comparator.comparingInt((Integer variable) -> -occurrences[variable]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+
+    this.cube = new IntVector();
+    this.cubes = new ArrayList<>();
+  }
+
+  // Splits into at most 2^depth cubes. An empty list means the formula is unsatisfiable.
+  List<int[]> split(int depth) {
+    cubes.clear();
+    if (search.propagateUnits())
+      split(depth, 0);
+    return cubes;
+  }
+
+  private void split(int depth, int level) {
+    int variable = depth == 0 ? NONE : branchVariable();
+    if (variable == REFUTED) {
+      search.backtrack(level);
+      cube.shrink(level);
+      return;
+    }
+    if (variable == NONE) {
+      cubes.add(cube.toArray());
+      search.backtrack(level);
+      cube.shrink(level);
+      return;
+    }
+
+    int branchLevel = search.decisionLevel();
+    for (int literal : new int[] { variable << 1, variable << 1 | 1 }) {
+      if (search.assume(literal)) {
+        cube.add(literal);
+        split(depth - 1, branchLevel);
+      }
+    }
+    search.backtrack(level);
+    cube.shrink(level);
+  }
+
+  // Scores the candidates and assigns the values implied by failed lookaheads. Returns the
+  // variable to branch on, NONE if every variable is assigned, or REFUTED if the cube conflicts.
+  private int branchVariable() {
+    while (true) {
+      int best = NONE;
+      long bestScore = -1;
+      int candidates = 0;
+      for (int i = 0; i < order.length && candidates < CANDIDATES; i++) {
+        int variable = order[i];
+        if (search.isAssigned(variable))
+          continue;
+        candidates++;
+
+        int positive = search.lookahead(variable << 1);
+        int negative = search.lookahead(variable << 1 | 1);
+        if (positive < 0 && negative < 0)
+          return REFUTED;
+        if (positive < 0 || negative < 0) {
+          int implied = positive < 0 ? variable << 1 | 1 : variable << 1;
+          if (!search.assume(implied))
+            return REFUTED;
+          cube.add(implied);
+          continue;
+        }
+
+        // Prefer variables both of whose values imply many assignments.
+        long score = (long)positive * negative * 1024 + positive + negative;
+        if (score > bestScore) {
+          best = variable;
+          bestScore = score;
+        }
+      }
+
+      if (best == NONE || !search.isAssigned(best))
+        return best;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package dimple;
+
+// Chooses the next variable to branch on. Implementations are notified of conflicts so they may
+// adapt the order as the search progresses.
+public interface DecisionHeuristic {
+  // Called for every variable taking part in the derivation of a conflict.
+  default void bump(int variable) {}
+
+  // Called once after every conflict.
+  default void decay() {}
+
+  // Called for every variable unassigned while backtracking.
+  void unassigned(int variable);
+
+  // Returns an unassigned variable, or -1 if all variables are assigned.
+  int next(Assignment assignment);
+
+  // Called when variables are added to an incremental search, with the new amount of variables.
+  void grow(int variables);
+}
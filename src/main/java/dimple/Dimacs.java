@@ -0,0 +1,104 @@
+package dimple;
+
+import com.google.common.collect.ImmutableBiMap;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+// Reads and writes the DIMACS CNF format. Variables are named by their DIMACS numbers.
+public final class Dimacs {
+  private static final int GZIP_MAGIC = 0x8b1f;
+
+  private Dimacs() {}
+
+  // Peeks at the first bytes of a stream which supports mark().
+  private static boolean isGzip(InputStream input) throws IOException {
+    input.mark(2);
+    int magic = input.read() | input.read() << 8;
+    input.reset();
+    return magic == GZIP_MAGIC;
+  }
+
+  // Opens the file again, and so only suits regular files.
+  private static boolean isGzip(Path path) throws IOException {
+    try (var input = new BufferedInputStream(Files.newInputStream(path))) {
+      return isGzip(input);
+    }
+  }
+
+  // Opens a file, decompressing it if it is compressed with gzip. The file is opened once, and the
+  // stream supports mark(), so that pipes can be detected and read without losing any input. A
+  // FileInputStream is used, since the stream of Files.newInputStream() seeks in available().
+  public static InputStream open(Path path) throws IOException {
+    var input = new BufferedInputStream(new FileInputStream(path.toFile()));
+    try {
+      return isGzip(input) ? new BufferedInputStream(new GZIPInputStream(input)) : input;
+    } catch (IOException exception) {
+      input.close();
+      throw exception;
+    }
+  }
+
+  // Whether a stream opened by open() starts like DIMACS, with a comment or a header, rather than
+  // an s-expression. Only the whitespace before the first byte is consumed.
+  public static boolean isDimacs(InputStream input) throws IOException {
+    int b;
+    do {
+      input.mark(1);
+      b = input.read();
+    } while (Character.isWhitespace(b));
+    input.reset();
+    return b == 'c' || b == 'p';
+  }
+
+  public static boolean isDimacs(Path path) throws IOException {
+    try (var input = open(path)) {
+      return isDimacs(input);
+    }
+  }
+
+  // Regular files which are not compressed are mapped into memory. Anything else, such as a pipe,
+  // is opened once and read as a stream.
+  public static void read(Path path, ClauseSink sink) throws IOException {
+    if (Files.isRegularFile(path) && !isGzip(path)) {
+      try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        DimacsReader.of(channel).read(sink);
+      }
+    } else {
+      try (var input = open(path)) {
+        read(input, sink);
+      }
+    }
+  }
+
+  public static void read(InputStream input, ClauseSink sink) throws IOException {
+    DimacsReader.of(input).read(sink);
+  }
+
+  public static Solver createSolver(Path path, SolverOptions options) throws IOException {
+    var builder = new ClauseBuilder();
+    read(path, builder);
+    return builder.createSolver(options);
+  }
+
+  public static Solver createSolver(InputStream input, SolverOptions options) throws IOException {
+    var builder = new ClauseBuilder();
+    read(input, builder);
+    return builder.createSolver(options);
+  }
+
+  // Writes clauses whose variables are numbered by the given map. Cardinality and XOR constraints
+  // are encoded into clauses.
+  public static void write(
+      ImmutableBiMap<String, Integer> names, ClauseDatabase clauses, Writer writer)
+      throws IOException {
+    new DimacsWriter(clauses.variables(), clauses).write(names, writer);
+  }
+}
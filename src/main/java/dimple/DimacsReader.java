@@ -0,0 +1,150 @@
+package dimple;
+
+import dimple.sexp.ParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Parses DIMACS CNF byte by byte, and adds every clause to a sink as soon as its terminating zero
+// is read. Files are mapped into memory a window at a time, and streams, such as decompressed
+// ones, are read through a buffer of their own.
+//
+// Comments start with `c` and run to the end of the line. The header `p cnf V C` is optional,
+// and variables beyond V are accepted. Input ends at a `%` as well, as in the SATLIB benchmarks.
+final class DimacsReader {
+  private static final int WINDOW_SIZE = 1 << 30;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final InputStream input;
+  private ByteBuffer buffer;
+  // Where the next window of the channel starts.
+  private long position;
+
+  // The variable of each DIMACS variable plus one, zero before it is first added.
+  private int[] variables;
+  private final IntVector clause;
+
+  private DimacsReader(FileChannel channel, InputStream input) {
+    this.channel = channel;
+    this.input = input;
+    this.buffer = ByteBuffer.allocate(0);
+    this.position = 0;
+    this.variables = new int[1];
+    this.clause = new IntVector();
+  }
+
+  static DimacsReader of(FileChannel channel) {
+    return new DimacsReader(channel, null);
+  }
+
+  static DimacsReader of(InputStream input) {
+    return new DimacsReader(null, input);
+  }
+
+  // Whether there are bytes left, reading more once the buffer is consumed.
+  private boolean fill() throws IOException {
+    while (!buffer.hasRemaining()) {
+      if (channel != null) {
+        long size = channel.size();
+        if (position >= size)
+          return false;
+        int length = (int)Math.min(WINDOW_SIZE, size - position);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += length;
+      } else {
+        if (buffer.capacity() == 0)
+          buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int length = input.read(buffer.array());
+        if (length == -1)
+          return false;
+        buffer.clear().limit(length);
+      }
+    }
+    return true;
+  }
+
+  // The next byte which is not whitespace, or -1 at the end of the input.
+  private int skipWhitespace() throws IOException {
+    while (fill()) {
+      byte b = buffer.get();
+      if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+        return b;
+    }
+    return -1;
+  }
+
+  private void skipLine() throws IOException {
+    while (fill())
+      if (buffer.get() == '\n')
+        return;
+  }
+
+  private static boolean isDigit(int b) {
+    return b >= '0' && b <= '9';
+  }
+
+  // Parses the integer starting with the given byte, up to the next byte which is not a digit.
+  private int parseInt(int first) throws IOException {
+    boolean negative = first == '-';
+    int b = negative ? (fill() ? buffer.get() : -1) : first;
+    if (b == -1)
+      throw new ParseException("Unexpected EOF in DIMACS input");
+    if (!isDigit(b))
+      throw new ParseException("Expected a number in DIMACS input, found '" + (char)b + "'");
+    long value = 0;
+    while (true) {
+      value = value * 10 + (b - '0');
+      if (value > Integer.MAX_VALUE)
+        throw new ParseException("Number out of range in DIMACS input");
+      if (!fill() || !isDigit(buffer.get(buffer.position())))
+        break;
+      b = buffer.get();
+    }
+    return (int)(negative ? -value : value);
+  }
+
+  private void parseHeader(ClauseSink sink) throws IOException {
+    for (byte expected : new byte[] {'c', 'n', 'f'})
+      if (skipWhitespace() != expected)
+        throw new ParseException("Expected a `p cnf' header in DIMACS input");
+    int variables = parseInt(skipWhitespace());
+    parseInt(skipWhitespace());
+    // Variables are interned in order, so that they keep their numbers where possible.
+    for (int variable = 1; variable <= variables; variable++)
+      variable(variable, sink);
+  }
+
+  private int variable(int variable, ClauseSink sink) {
+    if (variable >= variables.length)
+      variables = Arrays.copyOf(variables, Math.max(variables.length << 1, variable + 1));
+    if (variables[variable] == 0)
+      variables[variable] = sink.variable(Integer.toString(variable)) + 1;
+    return variables[variable] - 1;
+  }
+
+  void read(ClauseSink sink) throws IOException {
+    while (true) {
+      int b = skipWhitespace();
+      if (b == -1 || b == '%')
+        break;
+      else if (b == 'c')
+        skipLine();
+      else if (b == 'p')
+        parseHeader(sink);
+      else {
+        int literal = parseInt(b);
+        if (literal == 0) {
+          sink.addClause(clause.toArray());
+          clause.clear();
+        } else
+          clause.add(Literals.of(variable(Math.abs(literal), sink), literal < 0));
+      }
+    }
+    // The last clause may go without its zero.
+    if (!clause.isEmpty())
+      sink.addClause(clause.toArray());
+  }
+}
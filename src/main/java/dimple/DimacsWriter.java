@@ -0,0 +1,76 @@
+package dimple;
+
+import com.google.common.collect.ImmutableBiMap;
+import java.io.IOException;
+import java.io.Writer;
+
+// Writes a clause database in DIMACS CNF, numbering variables from one. Names are written in
+// comments, as `c <number> <name>`. DIMACS has clauses alone, so cardinality constraints are
+// encoded by sequential counters and XOR constraints by chains of short XORs, over auxiliary
+// variables numbered after the others.
+final class DimacsWriter extends ClauseEncoder {
+  private final ClauseDatabase clauses;
+  private final IntVector encoded;
+  private int variables;
+  private int encodedCount;
+
+  DimacsWriter(int variables, ClauseDatabase clauses) {
+    this.clauses = clauses;
+    this.encoded = new IntVector();
+    this.variables = Math.max(variables, clauses.variables());
+    this.encodedCount = 0;
+  }
+
+  @Override
+  protected int fresh() {
+    return Literals.of(variables++, false);
+  }
+
+  // Encoded clauses are kept back to back, each followed by a -1.
+  @Override
+  protected void clause(int... literals) {
+    for (int literal : literals)
+      encoded.add(literal);
+    encoded.add(-1);
+    encodedCount++;
+  }
+
+  private static void writeLiteral(Writer writer, int literal) throws IOException {
+    int variable = Literals.variable(literal) + 1;
+    writer.write(Integer.toString(Literals.isNegated(literal) ? -variable : variable));
+    writer.write(' ');
+  }
+
+  void write(ImmutableBiMap<String, Integer> names, Writer writer) throws IOException {
+    for (int constraint = 0; constraint < clauses.cardinalityCount(); constraint++)
+      atMost(clauses.cardinalityBound(constraint), clauses.cardinalityLiterals(constraint));
+    for (int constraint = 0; constraint < clauses.xorCount(); constraint++)
+      xor(clauses.xorLiterals(constraint));
+
+    int count = encodedCount;
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref))
+      if (!clauses.isLearned(ref) && !clauses.isDeleted(ref))
+        count++;
+
+    for (int variable = 0; variable < variables; variable++) {
+      var name = names.inverse().get(variable);
+      if (name != null)
+        writer.write("c " + (variable + 1) + " " + name + "\n");
+    }
+    writer.write("p cnf " + variables + " " + count + "\n");
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref)) {
+      if (clauses.isLearned(ref) || clauses.isDeleted(ref))
+        continue;
+      for (int i = 0; i < clauses.length(ref); i++)
+        writeLiteral(writer, clauses.literal(ref, i));
+      writer.write("0\n");
+    }
+    for (int i = 0; i < encoded.size; i++) {
+      if (encoded.data[i] == -1)
+        writer.write("0\n");
+      else
+        writeLiteral(writer, encoded.data[i]);
+    }
+    writer.flush();
+  }
+}
@@ -0,0 +1,53 @@
+package dimple;
+
+// Restarts when the recently learned clauses are of worse quality than the average, that is when
+// the average literal block distance over the last `window` conflicts times `margin` exceeds the
+// average over all conflicts.
+public final class GlucoseRestarts implements RestartPolicy {
+  private final int[] recent;
+  private final double margin;
+  private int recentCount;
+  private int recentNext;
+  private long recentSum;
+  private long totalSum;
+  private long totalCount;
+
+  public GlucoseRestarts() {
+    this(50, 0.8);
+  }
+
+  public GlucoseRestarts(int window, double margin) {
+    this.recent = new int[window];
+    this.margin = margin;
+  }
+
+  @Override
+  public void conflict(int lbd) {
+    totalSum += lbd;
+    totalCount += 1;
+
+    if (recentCount == recent.length)
+      recentSum -= recent[recentNext];
+    else
+      recentCount += 1;
+    recent[recentNext] = lbd;
+    recentSum += lbd;
+    recentNext = (recentNext + 1) % recent.length;
+  }
+
+  @Override
+  public boolean shouldRestart() {
+    if (recentCount < recent.length)
+      return false;
+    double recentAverage = (double)recentSum / recentCount;
+    double totalAverage = (double)totalSum / totalCount;
+    return recentAverage * margin > totalAverage;
+  }
+
+  @Override
+  public void restarted() {
+    recentCount = 0;
+    recentNext = 0;
+    recentSum = 0;
+  }
+}
@@ -0,0 +1,101 @@
+package dimple;
+
+import java.util.Arrays;
+
+// A binary max-heap of variables ordered by priority. The position of every variable in the heap is
+// tracked, so a variable whose priority increased can be moved up in O(log n).
+final class IntHeap {
+  private static final int ABSENT = -1;
+
+  double[] priorities;
+  private int[] heap;
+  private int[] positions;
+  private int size;
+
+  IntHeap(double[] priorities) {
+    this.priorities = priorities;
+    this.heap = new int[priorities.length];
+    this.positions = new int[priorities.length];
+    Arrays.fill(positions, ABSENT);
+    this.size = 0;
+  }
+
+  // Replaces the priorities with a longer array holding the same values, making room for more
+  // variables.
+  void grow(double[] priorities) {
+    int previous = positions.length;
+    this.priorities = priorities;
+    this.heap = Arrays.copyOf(heap, priorities.length);
+    this.positions = Arrays.copyOf(positions, priorities.length);
+    Arrays.fill(positions, previous, positions.length, ABSENT);
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean contains(int variable) {
+    return positions[variable] != ABSENT;
+  }
+
+  void insert(int variable) {
+    heap[size] = variable;
+    positions[variable] = size;
+    up(size++);
+  }
+
+  // Restores the heap after the priority of a variable was increased.
+  void increased(int variable) {
+    if (contains(variable))
+      up(positions[variable]);
+  }
+
+  int removeMax() {
+    int max = heap[0];
+    positions[max] = ABSENT;
+    if (--size > 0) {
+      heap[0] = heap[size];
+      positions[heap[0]] = 0;
+      down(0);
+    }
+    return max;
+  }
+
+  private void up(int index) {
+    int variable = heap[index];
+    double priority = priorities[variable];
+    while (index > 0) {
+      int parent = (index - 1) >> 1;
+      if (priorities[heap[parent]] >= priority)
+        break;
+      heap[index] = heap[parent];
+      positions[heap[index]] = index;
+      index = parent;
+    }
+    heap[index] = variable;
+    positions[variable] = index;
+  }
+
+  private void down(int index) {
+    int variable = heap[index];
+    double priority = priorities[variable];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size)
+        break;
+      if (child + 1 < size && priorities[heap[child + 1]] > priorities[heap[child]])
+        child += 1;
+      if (priorities[heap[child]] <= priority)
+        break;
+      heap[index] = heap[child];
+      positions[heap[index]] = index;
+      index = child;
+    }
+    heap[index] = variable;
+    positions[variable] = index;
+  }
+}
@@ -0,0 +1,59 @@
+package dimple;
+
+import java.util.Arrays;
+
+final class IntVector {
+  int[] data;
+  int size;
+
+  IntVector() {
+    this(4);
+  }
+
+  IntVector(int capacity) {
+    this.data = new int[Math.max(capacity, 1)];
+    this.size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int get(int index) {
+    return data[index];
+  }
+
+  void set(int index, int value) {
+    data[index] = value;
+  }
+
+  void add(int value) {
+    if (size == data.length)
+      data = Arrays.copyOf(data, data.length << 1);
+    data[size++] = value;
+  }
+
+  int last() {
+    return data[size - 1];
+  }
+
+  int pop() {
+    return data[--size];
+  }
+
+  void shrink(int newSize) {
+    size = newSize;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(data, size);
+  }
+}
@@ -0,0 +1,22 @@
+package dimple;
+
+// A literal is encoded as `variable << 1 | sign`, where sign is 1 for negated variables.
+public final class Literals {
+  private Literals() {}
+
+  public static int of(int variable, boolean negated) {
+    return variable << 1 | (negated ? 1 : 0);
+  }
+
+  public static int variable(int literal) {
+    return literal >> 1;
+  }
+
+  public static boolean isNegated(int literal) {
+    return (literal & 1) != 0;
+  }
+
+  public static int negate(int literal) {
+    return literal ^ 1;
+  }
+}
@@ -0,0 +1,49 @@
+package dimple;
+
+// Restarts after `unit * luby(i)` conflicts, where luby is the sequence 1 1 2 1 1 2 4 1 1 2 ...
+public final class LubyRestarts implements RestartPolicy {
+  private final int unit;
+  private int restarts;
+  private long conflicts;
+
+  public LubyRestarts() {
+    this(100);
+  }
+
+  public LubyRestarts(int unit) {
+    this.unit = unit;
+    this.restarts = 0;
+    this.conflicts = 0;
+  }
+
+  static long luby(int index) {
+    int size = 1;
+    int sequence = 0;
+    while (size < index + 1) {
+      sequence += 1;
+      size = 2 * size + 1;
+    }
+    while (size - 1 != index) {
+      size = (size - 1) >> 1;
+      sequence -= 1;
+      index = index % size;
+    }
+    return 1L << sequence;
+  }
+
+  @Override
+  public void conflict(int lbd) {
+    conflicts += 1;
+  }
+
+  @Override
+  public boolean shouldRestart() {
+    return conflicts >= unit * luby(restarts);
+  }
+
+  @Override
+  public void restarted() {
+    restarts += 1;
+    conflicts = 0;
+  }
+}
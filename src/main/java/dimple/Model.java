@@ -0,0 +1,142 @@
+package dimple;
+
+import com.google.common.collect.BiMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// A satisfying assignment, one bit per variable. Variable names are shared with the solver and
+// only looked up when asked for, so a model costs a bit per variable however many are enumerated.
+// Variables without a name are hidden, and always read as false.
+public final class Model {
+  private final long[] bits;
+  private final int size;
+  private final BiMap<String, Integer> names;
+
+  // The named variables are the set bits of `named`.
+  Model(Assignment assignment, BiMap<String, Integer> names, long[] named) {
+    this.size = assignment.size();
+    this.bits = new long[(size + 63) >>> 6];
+    this.names = names;
+
+    var values = assignment.values;
+    for (int variable = 0; variable < size; variable++)
+      if (values[variable] == Assignment.TRUE)
+        bits[variable >>> 6] |= 1L << variable;
+    for (int word = 0; word < bits.length; word++)
+      bits[word] &= word < named.length ? named[word] : 0;
+  }
+
+  // The number of variables, hidden ones included.
+  public int size() {
+    return size;
+  }
+
+  public boolean get(int variable) {
+    return (bits[variable >>> 6] & 1L << variable) != 0;
+  }
+
+  // Returns null for a name which is not a variable of the model.
+  public Boolean get(String name) {
+    var variable = names.get(name);
+    if (variable == null || variable >= size)
+      return null;
+    return get(variable);
+  }
+
+  public String name(int variable) {
+    return names.inverse().get(variable);
+  }
+
+  // The first true variable at or after the given one, or -1 if there is none. Iterate over the
+  // true variables with `for (int v = nextTrue(0); v != -1; v = nextTrue(v + 1))`.
+  public int nextTrue(int from) {
+    if (from >= size)
+      return -1;
+    int word = from >>> 6;
+    long remaining = bits[word] & -1L << from;
+    while (remaining == 0) {
+      if (++word == bits.length)
+        return -1;
+      remaining = bits[word];
+    }
+    int variable = (word << 6) + Long.numberOfTrailingZeros(remaining);
+    return variable < size ? variable : -1;
+  }
+
+  public int trueCount() {
+    int count = 0;
+    for (long word : bits)
+      count += Long.bitCount(word);
+    return count;
+  }
+
+  // A read only view of the model keyed by variable name.
+  public Map<String, Boolean> asMap() {
+    return new AbstractMap<>() {
+      @Override
+      public Boolean get(Object key) {
+        return key instanceof String ? Model.this.get((String)key) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public Set<Map.Entry<String, Boolean>> entrySet() {
+        return new AbstractSet<>() {
+          @Override
+          public int size() {
+            int count = 0;
+            for (int variable : names.values())
+              if (variable < size)
+                count++;
+            return count;
+          }
+
+          @Override
+          public Iterator<Map.Entry<String, Boolean>> iterator() {
+            var entries = names.entrySet().iterator();
+            return new Iterator<>() {
+              private Map.Entry<String, Integer> next = advance();
+
+              private Map.Entry<String, Integer> advance() {
+                while (entries.hasNext()) {
+                  var entry = entries.next();
+                  if (entry.getValue() < size)
+                    return entry;
+                }
+                return null;
+              }
+
+              @Override
+              public boolean hasNext() {
+                return next != null;
+              }
+
+              @Override
+              public Map.Entry<String, Boolean> next() {
+                if (!hasNext())
+                  throw new NoSuchElementException();
+                var current = next;
+                next = advance();
+                return new AbstractMap.SimpleImmutableEntry<>(
+                    current.getKey(), Model.this.get(current.getValue()));
+              }
+            };
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+}
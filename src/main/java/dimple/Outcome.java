@@ -0,0 +1,41 @@
+package dimple;
+
+import java.util.Map;
+import java.util.Optional;
+
+// The answer of an incremental solver to a call under assumptions.
+public final class Outcome {
+  private final Result result;
+  private final Map<String, Boolean> model;
+  private final Map<String, Boolean> failedAssumptions;
+
+  Outcome(Result result, Map<String, Boolean> model, Map<String, Boolean> failedAssumptions) {
+    this.result = result;
+    this.model = model;
+    this.failedAssumptions = failedAssumptions;
+  }
+
+  public Result result() {
+    return result;
+  }
+
+  public boolean isSatisfiable() {
+    return result == Result.SAT;
+  }
+
+  // Present when the clauses are satisfiable under the assumptions.
+  public Optional<Map<String, Boolean>> model() {
+    return Optional.ofNullable(model);
+  }
+
+  // When unsatisfiable, assumptions which cannot all hold together. Empty if the clauses are
+  // unsatisfiable regardless of the assumptions.
+  public Map<String, Boolean> failedAssumptions() {
+    return failedAssumptions;
+  }
+
+  @Override
+  public String toString() {
+    return isSatisfiable() ? "SAT " + model : "UNSAT " + failedAssumptions;
+  }
+}
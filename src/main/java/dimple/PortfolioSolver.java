@@ -0,0 +1,143 @@
+package dimple;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Races differently configured conflict driven searches over the same clauses on separate threads.
+// The first search to prove the formula satisfiable or unsatisfiable wins, and the others are
+// interrupted. The given clauses are only ever read, and every search works on a copy of its own,
+// as propagation reorders the literals of clauses in place to keep its watches. Clause memory so
+// grows with the number of threads, N copies for N threads. Short learned clauses are exchanged
+// between the searches at restarts.
+final class PortfolioSolver {
+  private static final int SHARING_CAPACITY = 4096;
+
+  private final int variables;
+  private final ClauseDatabase clauses;
+  private final SolverOptions options;
+
+  private final AtomicReferenceArray<CdclSearch> searches;
+  private final ClauseExchange exchange;
+  private volatile boolean finished;
+  private CdclSearch winner;
+
+  PortfolioSolver(int variables, ClauseDatabase clauses, SolverOptions options) {
+    this.variables = variables;
+    this.clauses = clauses;
+    this.options = options;
+    this.searches = new AtomicReferenceArray<>(options.threads());
+    this.exchange = new ClauseExchange(
+        options.threads(), SHARING_CAPACITY, options.shareMaxSize(), options.shareMaxLbd());
+    this.finished = false;
+  }
+
+  // The first configuration is the given one, the others vary the decision order, polarity and
+  // restart policy.
+  static SolverOptions diversify(SolverOptions options, int index) {
+    if (index == 0)
+      return options;
+
+    double[] decays = { 0.95, 0.85, 0.99 };
+    double decay = decays[index % decays.length];
+    var builder = options.toBuilder()
+        .heuristic((variables) -> new VsidsHeuristic(variables, decay, index))
+        .defaultPolarity(index % 2 == 0 ? options.defaultPolarity() : !options.defaultPolarity());
+
+    switch (index % 3) {
+      case 1:
+        builder.restarts(GlucoseRestarts::new);
+        break;
+      case 2:
+        builder.restarts(() -> new LubyRestarts(512));
+        break;
+      default:
+        break;
+    }
+    return builder.build();
+  }
+
+  private Result run(int index) {
+    var search = new CdclSearch(variables, clauses, diversify(options, index));
+    if (options.sharing())
+      search.share(exchange.endpoint(index));
+    searches.set(index, search);
+    if (finished)
+      return Result.UNKNOWN;
+    return search.solve();
+  }
+
+  private void interruptAll() {
+    finished = true;
+    for (int i = 0; i < searches.length(); i++) {
+      var search = searches.get(i);
+      if (search != null)
+        search.interrupt();
+    }
+  }
+
+  Result solve() throws InterruptedException {
+    int threads = searches.length();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+      var thread = new Thread(runnable, "dimple-portfolio");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    var result = Result.UNKNOWN;
+    try {
+      var completion = new ExecutorCompletionService<Integer>(executor);
+      var results = new Result[threads];
+      for (int i = 0; i < threads; i++) {
+        final int index = i;
+        completion.submit(() -> {
+          results[index] = run(index);
+          return index;
+        });
+      }
+
+      for (int i = 0; i < threads; i++) {
+        int index = completion.take().get();
+        if (results[index] != Result.UNKNOWN) {
+          result = results[index];
+          winner = searches.get(index);
+          break;
+        }
+      }
+    } catch (ExecutionException exception) {
+      throw new IllegalStateException("Portfolio search failed", exception.getCause());
+    } finally {
+      interruptAll();
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    return result;
+  }
+
+  // Valid after solve() returned SAT.
+  Assignment model() {
+    return winner.model();
+  }
+
+  // Statistics of the winning search, with clause sharing counted over all searches.
+  SolverStatistics statistics() {
+    long exported = 0;
+    long imported = 0;
+    long useful = 0;
+    for (int i = 0; i < searches.length(); i++) {
+      var search = searches.get(i);
+      if (search != null) {
+        var statistics = search.statistics();
+        exported += statistics.exportedClauses();
+        imported += statistics.importedClauses();
+        useful += statistics.usefulImports();
+      }
+    }
+    var statistics = winner == null ? SolverStatistics.EMPTY : winner.statistics();
+    return statistics.withSharing(exported, imported, useful);
+  }
+}
@@ -0,0 +1,602 @@
+package dimple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Simplifies clauses before search, in the manner of SatELite. Unit clauses are propagated, clauses
+// subsumed by another are removed, and clauses are strengthened by self-subsuming resolution: a
+// clause C with literal l strengthens a clause D which contains the rest of C and the negation of
+// l, by removing that negation from D. Variables are then eliminated by replacing the clauses they
+// occur in with all resolvents on them, whenever that does not add clauses.
+//
+// Before elimination, the binary clauses are read as a graph of implications between literals.
+// Literals in a strongly connected component of it are equivalent, and are all replaced by one of
+// them. Each literal is then probed: assumed and propagated over all clauses. A literal whose
+// propagation fails is fixed false, and literals implied by both values of a variable are fixed
+// true.
+//
+// Clauses are kept sorted, so that containment is checked by merging. Each clause has a signature,
+// a bit per variable modulo 64, which rules out most candidates before they are merged. The clauses
+// removed by elimination are kept along with the literal of the eliminated variable in them, which
+// is made true when a model of the simplified clauses leaves the clause false.
+//
+// Cardinality and XOR constraints are kept as they are, but for equivalent literals, which are
+// replaced in them too. Their variables are never eliminated.
+final class Preprocessor {
+  // Variables whose elimination takes more resolution steps are kept.
+  private static final int MAX_RESOLUTIONS = 4096;
+  // Resolvents longer than this are not added, and their variable is kept.
+  private static final int MAX_RESOLVENT_LENGTH = 20;
+  // Probing stops after visiting this many clauses.
+  private static final long MAX_PROBING_STEPS = 10_000_000;
+
+  private static final int FAILED = -2;
+  private static final int SUBSUMED = -1;
+
+  private final int variables;
+  private final ClauseDatabase original;
+
+  // Deleted clauses are null, and are removed from occurrence lists lazily.
+  private int[][] clauses;
+  private long[] signatures;
+  private int clauseCount;
+  private final IntVector[] occurrences;
+  private final List<int[]> cardinalities;
+  private final List<int[]> xors;
+
+  private final Assignment assignment;
+  private final IntVector units;
+  private int propagated;
+  private final IntVector queue;
+  private int eliminated;
+  private int substituted;
+  private int failedLiterals;
+  // Scratch assignment of probing, and the literals it assigned.
+  private final Assignment probed;
+  private final IntVector implied;
+  private long probingSteps;
+  // Clauses removed by elimination, each as its literals followed by the literal of the eliminated
+  // variable and the length of the clause.
+  private final IntVector removed;
+  private boolean unsatisfiable;
+
+  Preprocessor(int variables, ClauseDatabase clauses) {
+    this.variables = Math.max(variables, clauses.variables());
+    this.original = clauses;
+    this.clauses = new int[Math.max(clauses.size(), 16)][];
+    this.signatures = new long[this.clauses.length];
+    this.occurrences = new IntVector[2 * this.variables];
+    for (int literal = 0; literal < occurrences.length; literal++)
+      occurrences[literal] = new IntVector();
+    this.cardinalities = new ArrayList<>();
+    this.xors = new ArrayList<>();
+    this.assignment = new Assignment(this.variables);
+    this.units = new IntVector();
+    this.queue = new IntVector();
+    this.removed = new IntVector();
+    this.probed = new Assignment(this.variables);
+    this.implied = new IntVector();
+  }
+
+  private static long signature(int[] literals) {
+    long signature = 0;
+    for (int literal : literals)
+      signature |= 1L << (literal >> 1);
+    return signature;
+  }
+
+  private void enqueue(int literal) {
+    byte value = assignment.valueOf(literal);
+    if (value == Assignment.FALSE)
+      unsatisfiable = true;
+    else if (value == Assignment.UNASSIGNED) {
+      assignment.assign(literal);
+      units.add(literal);
+    }
+  }
+
+  // Adds a clause given sorted and without duplicate literals.
+  private void add(int[] literals) {
+    if (literals.length == 0) {
+      unsatisfiable = true;
+      return;
+    }
+    if (literals.length == 1) {
+      enqueue(literals[0]);
+      return;
+    }
+
+    if (clauseCount == clauses.length) {
+      clauses = Arrays.copyOf(clauses, clauseCount << 1);
+      signatures = Arrays.copyOf(signatures, clauseCount << 1);
+    }
+    int clause = clauseCount++;
+    clauses[clause] = literals;
+    signatures[clause] = signature(literals);
+    for (int literal : literals)
+      occurrences[literal].add(clause);
+    queue.add(clause);
+  }
+
+  // Sorts the literals and removes duplicates, false literals and, if the clause is satisfied or a
+  // tautology, the clause.
+  private void normalize(int[] literals) {
+    Arrays.sort(literals);
+    int length = 0;
+    for (int i = 0; i < literals.length; i++) {
+      int literal = literals[i];
+      byte value = assignment.valueOf(literal);
+      if (value == Assignment.TRUE || length > 0 && literals[length - 1] == (literal ^ 1))
+        return;
+      if (value == Assignment.UNASSIGNED && (length == 0 || literals[length - 1] != literal))
+        literals[length++] = literal;
+    }
+    add(Arrays.copyOf(literals, length));
+  }
+
+  private void delete(int clause) {
+    clauses[clause] = null;
+  }
+
+  private void strengthen(int clause, int literal) {
+    var literals = clauses[clause];
+    var strengthened = new int[literals.length - 1];
+    int length = 0;
+    for (int other : literals)
+      if (other != literal)
+        strengthened[length++] = other;
+
+    var occurring = occurrences[literal];
+    int kept = 0;
+    for (int i = 0; i < occurring.size; i++)
+      if (occurring.data[i] != clause)
+        occurring.data[kept++] = occurring.data[i];
+    occurring.shrink(kept);
+
+    if (strengthened.length == 1) {
+      delete(clause);
+      enqueue(strengthened[0]);
+    } else {
+      clauses[clause] = strengthened;
+      signatures[clause] = signature(strengthened);
+      queue.add(clause);
+    }
+  }
+
+  // The live clauses a literal occurs in. Deleted clauses are dropped from its list on the way.
+  private int[] occurring(int literal) {
+    var occurring = occurrences[literal];
+    int kept = 0;
+    for (int i = 0; i < occurring.size; i++)
+      if (clauses[occurring.data[i]] != null)
+        occurring.data[kept++] = occurring.data[i];
+    occurring.shrink(kept);
+    return occurring.toArray();
+  }
+
+  private void propagate() {
+    while (propagated < units.size && !unsatisfiable) {
+      int literal = units.get(propagated++);
+      for (int clause : occurring(literal))
+        delete(clause);
+      for (int clause : occurring(literal ^ 1))
+        if (clauses[clause] != null)
+          strengthen(clause, literal ^ 1);
+    }
+  }
+
+  // SUBSUMED if the first clause subsumes the second, FAILED if it neither subsumes nor
+  // strengthens it, and otherwise the literal of the first clause whose negation can be removed
+  // from the second.
+  private static int subsumes(int[] first, int[] second) {
+    int flipped = SUBSUMED;
+    int j = 0;
+    for (int literal : first) {
+      while (j < second.length && second[j] >> 1 < literal >> 1)
+        j++;
+      if (j == second.length || second[j] >> 1 != literal >> 1)
+        return FAILED;
+      if (second[j] != literal) {
+        if (flipped != SUBSUMED)
+          return FAILED;
+        flipped = literal;
+      }
+      j++;
+    }
+    return flipped;
+  }
+
+  // Removes or strengthens the clauses each queued clause subsumes or strengthens.
+  private void subsume() {
+    while (!queue.isEmpty() && !unsatisfiable) {
+      propagate();
+      int clause = queue.pop();
+      var literals = clauses[clause];
+      if (literals == null)
+        continue;
+
+      // Any clause subsumed or strengthened contains the variable of every literal, so the
+      // variable occurring least narrows down the candidates the most.
+      int best = literals[0];
+      for (int literal : literals)
+        if (occurrences[literal].size + occurrences[literal ^ 1].size
+            < occurrences[best].size + occurrences[best ^ 1].size)
+          best = literal;
+
+      for (int polarity = 0; polarity < 2 && clauses[clause] != null; polarity++)
+        for (int other : occurring(best ^ polarity)) {
+          var otherLiterals = clauses[other];
+          if (other == clause || otherLiterals == null || otherLiterals.length < literals.length
+              || (signatures[clause] & ~signatures[other]) != 0)
+            continue;
+          int result = subsumes(literals, otherLiterals);
+          if (result == SUBSUMED)
+            delete(other);
+          else if (result != FAILED)
+            strengthen(other, result ^ 1);
+        }
+    }
+    propagate();
+  }
+
+  // The resolvent of two clauses on a variable, or null if it is a tautology.
+  private static int[] resolve(int[] positive, int[] negative, int variable) {
+    var resolvent = new int[positive.length + negative.length - 2];
+    int length = 0;
+    int i = 0;
+    int j = 0;
+    while (i < positive.length || j < negative.length) {
+      int literal;
+      if (j == negative.length || i < positive.length && positive[i] < negative[j])
+        literal = positive[i++];
+      else if (i == positive.length || negative[j] < positive[i])
+        literal = negative[j++];
+      else {
+        literal = positive[i++];
+        j++;
+      }
+      if (literal >> 1 == variable)
+        continue;
+      if (length > 0 && resolvent[length - 1] == (literal ^ 1))
+        return null;
+      resolvent[length++] = literal;
+    }
+    return Arrays.copyOf(resolvent, length);
+  }
+
+  // Keeps a clause removed from the clauses, for extend() to make the witness true if the rest of
+  // the clause is false.
+  private void keepRemoved(int[] literals, int witness) {
+    for (int literal : literals)
+      removed.add(literal);
+    removed.add(witness);
+    removed.add(literals.length);
+  }
+
+  private boolean eliminate(int variable) {
+    var positive = occurring(Literals.of(variable, false));
+    var negative = occurring(Literals.of(variable, true));
+    if (positive.length + negative.length == 0
+        || (long)positive.length * negative.length > MAX_RESOLUTIONS)
+      return false;
+
+    List<int[]> resolvents = new ArrayList<>();
+    for (int p : positive)
+      for (int n : negative) {
+        var resolvent = resolve(clauses[p], clauses[n], variable);
+        if (resolvent == null)
+          continue;
+        if (resolvent.length > MAX_RESOLVENT_LENGTH
+            || resolvents.size() == positive.length + negative.length)
+          return false;
+        resolvents.add(resolvent);
+      }
+
+    for (int polarity = 0; polarity < 2; polarity++)
+      for (int clause : polarity == 0 ? positive : negative) {
+        keepRemoved(clauses[clause], Literals.of(variable, polarity == 1));
+        delete(clause);
+      }
+    eliminated++;
+    for (var resolvent : resolvents)
+      add(resolvent);
+    return true;
+  }
+
+  // The implications of the binary clauses: (or a b) is (if (not a) b) and (if (not b) a).
+  private IntVector[] implications() {
+    var implications = new IntVector[2 * variables];
+    for (int literal = 0; literal < implications.length; literal++)
+      implications[literal] = new IntVector();
+    for (int clause = 0; clause < clauseCount; clause++) {
+      var literals = clauses[clause];
+      if (literals != null && literals.length == 2) {
+        implications[literals[0] ^ 1].add(literals[1]);
+        implications[literals[1] ^ 1].add(literals[0]);
+      }
+    }
+    return implications;
+  }
+
+  // Maps every literal to the literal of the least variable of its strongly connected component in
+  // the implication graph, found by Tarjan's algorithm with a stack of its own. The component of
+  // the negation of a literal is the negation of its component, so the map respects negation.
+  private int[] representatives(IntVector[] implications) {
+    int literals = implications.length;
+    var representatives = new int[literals];
+    var index = new int[literals];
+    var lowest = new int[literals];
+    var edge = new int[literals];
+    var onStack = new boolean[literals];
+    Arrays.fill(index, -1);
+    var component = new IntVector();
+    var path = new IntVector();
+    int visited = 0;
+
+    for (int root = 0; root < literals; root++) {
+      if (index[root] != -1)
+        continue;
+      index[root] = lowest[root] = visited++;
+      component.add(root);
+      onStack[root] = true;
+      path.add(root);
+
+      while (!path.isEmpty()) {
+        int literal = path.last();
+        var successors = implications[literal];
+        if (edge[literal] < successors.size) {
+          int successor = successors.get(edge[literal]++);
+          if (index[successor] == -1) {
+            index[successor] = lowest[successor] = visited++;
+            component.add(successor);
+            onStack[successor] = true;
+            path.add(successor);
+          } else if (onStack[successor])
+            lowest[literal] = Math.min(lowest[literal], index[successor]);
+          continue;
+        }
+
+        path.pop();
+        if (!path.isEmpty())
+          lowest[path.last()] = Math.min(lowest[path.last()], lowest[literal]);
+        if (lowest[literal] != index[literal])
+          continue;
+
+        int start = component.size - 1;
+        while (component.get(start) != literal)
+          start--;
+        int representative = literal;
+        for (int i = start; i < component.size; i++)
+          representative = Math.min(representative, component.get(i));
+        for (int i = start; i < component.size; i++) {
+          int member = component.get(i);
+          onStack[member] = false;
+          representatives[member] = representative;
+          unsatisfiable |= member == (representative ^ 1);
+        }
+        component.shrink(start);
+      }
+    }
+    return representatives;
+  }
+
+  // Replaces every literal by its representative among equivalent literals.
+  private void substituteEquivalences() {
+    var representatives = representatives(implications());
+    if (unsatisfiable)
+      return;
+
+    for (int variable = 0; variable < variables; variable++) {
+      int literal = Literals.of(variable, false);
+      int representative = representatives[literal];
+      if (representative == literal || assignment.isAssigned(variable))
+        continue;
+      // Either clause of the equivalence sets the variable to the value of its representative.
+      keepRemoved(new int[] {literal, representative ^ 1}, literal);
+      keepRemoved(new int[] {literal ^ 1, representative}, literal ^ 1);
+      substituted++;
+    }
+    if (substituted == 0)
+      return;
+
+    for (int clause = 0, end = clauseCount; clause < end && !unsatisfiable; clause++) {
+      var literals = clauses[clause];
+      if (literals == null)
+        continue;
+      boolean changed = false;
+      for (int literal : literals)
+        changed |= representatives[literal] != literal;
+      if (!changed)
+        continue;
+      var replaced = new int[literals.length];
+      for (int i = 0; i < literals.length; i++)
+        replaced[i] = representatives[literals[i]];
+      delete(clause);
+      normalize(replaced);
+    }
+    for (var literals : cardinalities)
+      for (int i = 1; i < literals.length; i++)
+        literals[i] = representatives[literals[i]];
+    for (var literals : xors)
+      for (int i = 0; i < literals.length; i++)
+        literals[i] = representatives[literals[i]];
+    propagate();
+  }
+
+  // Assigns a literal on the scratch assignment and propagates it over all clauses, leaving the
+  // literals assigned in `implied`. Returns false on a conflict.
+  private boolean probe(int literal) {
+    implied.clear();
+    probed.assign(literal);
+    implied.add(literal);
+    for (int head = 0; head < implied.size; head++) {
+      var falsified = occurrences[implied.get(head) ^ 1];
+      for (int i = 0; i < falsified.size; i++) {
+        var literals = clauses[falsified.get(i)];
+        if (literals == null)
+          continue;
+        probingSteps++;
+        int unassigned = -1;
+        int count = 0;
+        boolean satisfied = false;
+        for (int j = 0; j < literals.length && !satisfied && count < 2; j++) {
+          byte value = probed.valueOf(literals[j]);
+          satisfied = value == Assignment.TRUE;
+          if (value == Assignment.UNASSIGNED) {
+            unassigned = literals[j];
+            count++;
+          }
+        }
+        if (satisfied || count > 1)
+          continue;
+        if (count == 0)
+          return false;
+        probed.assign(unassigned);
+        implied.add(unassigned);
+      }
+    }
+    return true;
+  }
+
+  private void unprobe() {
+    for (int i = 0; i < implied.size; i++)
+      probed.unassign(implied.get(i) >> 1);
+  }
+
+  // Probes both values of every variable, within a budget of clause visits.
+  private void probe() {
+    var impliedByPositive = new boolean[2 * variables];
+    var positive = new IntVector();
+    for (int variable = 0; variable < variables; variable++) {
+      if (unsatisfiable || probingSteps > MAX_PROBING_STEPS)
+        return;
+      if (assignment.isAssigned(variable))
+        continue;
+
+      int literal = Literals.of(variable, false);
+      boolean positiveHolds = probe(literal);
+      unprobe();
+      if (!positiveHolds) {
+        failedLiterals++;
+        enqueue(literal ^ 1);
+        propagate();
+        continue;
+      }
+      positive.clear();
+      for (int i = 1; i < implied.size; i++) {
+        positive.add(implied.get(i));
+        impliedByPositive[implied.get(i)] = true;
+      }
+
+      boolean negativeHolds = probe(literal ^ 1);
+      unprobe();
+      if (!negativeHolds) {
+        failedLiterals++;
+        enqueue(literal);
+      } else
+        for (int i = 1; i < implied.size; i++)
+          if (impliedByPositive[implied.get(i)])
+            enqueue(implied.get(i));
+      for (int i = 0; i < positive.size; i++)
+        impliedByPositive[positive.get(i)] = false;
+      propagate();
+    }
+  }
+
+  // Variables are tried for elimination in order of their occurrences, fewest first.
+  private void eliminate() {
+    var frozen = new boolean[variables];
+    for (var literals : cardinalities)
+      for (int i = 1; i < literals.length; i++)
+        frozen[literals[i] >> 1] = true;
+    for (var literals : xors)
+      for (int literal : literals)
+        frozen[literal >> 1] = true;
+    var order = new Integer[variables];
+    var counts = new int[variables];
+    for (int variable = 0; variable < variables; variable++) {
+      order[variable] = variable;
+      counts[variable] = occurring(Literals.of(variable, false)).length
+          + occurring(Literals.of(variable, true)).length;
+    }
+    Arrays.sort(order, (a, b) -> Integer.compare(counts[a], counts[b]));
+
+    for (int variable : order) {
+      if (unsatisfiable)
+        return;
+      if (!assignment.isAssigned(variable) && !frozen[variable] && eliminate(variable))
+        subsume();
+    }
+  }
+
+  // The simplified clauses, with a unit clause for every variable fixed on the way. They are
+  // satisfiable exactly when the original clauses are.
+  ClauseDatabase simplify() {
+    for (int ref = original.first(); ref < original.end(); ref = original.next(ref))
+      if (!original.isDeleted(ref) && !unsatisfiable)
+        normalize(original.literals(ref));
+    // Each constraint is kept as its bound followed by its literals.
+    for (int constraint = 0; constraint < original.cardinalityCount(); constraint++) {
+      var literals = original.cardinalityLiterals(constraint);
+      var stored = new int[literals.length + 1];
+      stored[0] = original.cardinalityBound(constraint);
+      System.arraycopy(literals, 0, stored, 1, literals.length);
+      cardinalities.add(stored);
+    }
+    for (int constraint = 0; constraint < original.xorCount(); constraint++)
+      xors.add(original.xorLiterals(constraint).clone());
+    subsume();
+    substituteEquivalences();
+    probe();
+    subsume();
+    eliminate();
+
+    var simplified = new ClauseDatabase(variables);
+    if (unsatisfiable) {
+      simplified.add();
+      return simplified;
+    }
+    for (int i = 0; i < units.size; i++)
+      simplified.add(units.get(i));
+    for (int clause = 0; clause < clauseCount; clause++)
+      if (clauses[clause] != null)
+        simplified.add(clauses[clause]);
+    for (var literals : cardinalities)
+      simplified.addAtMost(literals[0], Arrays.copyOfRange(literals, 1, literals.length));
+    for (var literals : xors)
+      simplified.addXor(literals);
+    return simplified;
+  }
+
+  // Extends a model of the simplified clauses to one of the original clauses. Clauses are restored
+  // in the reverse order of their removal, so each variable is set after those eliminated later.
+  Assignment extend(Assignment model) {
+    var extended = model.copy();
+    for (int end = removed.size; end > 0; ) {
+      int length = removed.get(end - 1);
+      int witness = removed.get(end - 2);
+      int start = end - 2 - length;
+      boolean satisfied = false;
+      for (int i = start; i < end - 2 && !satisfied; i++)
+        satisfied = extended.valueOf(removed.get(i)) == Assignment.TRUE;
+      if (!satisfied)
+        extended.assign(witness);
+      end = start;
+    }
+    return extended;
+  }
+
+  int eliminatedVariables() {
+    return eliminated;
+  }
+
+  // Variables replaced by an equivalent literal.
+  int substitutedVariables() {
+    return substituted;
+  }
+
+  int failedLiterals() {
+    return failedLiterals;
+  }
+}
@@ -0,0 +1,27 @@
+package dimple;
+
+// Decides when the search should abandon its current decisions and start over from the top level.
+// Learned clauses, variable activities and saved phases survive a restart.
+public interface RestartPolicy {
+  // Called after every conflict with the literal block distance of the learned clause.
+  void conflict(int lbd);
+
+  boolean shouldRestart();
+
+  void restarted();
+
+  static RestartPolicy never() {
+    return new RestartPolicy() {
+      @Override
+      public void conflict(int lbd) {}
+
+      @Override
+      public boolean shouldRestart() {
+        return false;
+      }
+
+      @Override
+      public void restarted() {}
+    };
+  }
+}
@@ -0,0 +1,7 @@
+package dimple;
+
+public enum Result {
+  SAT,
+  UNSAT,
+  UNKNOWN
+}
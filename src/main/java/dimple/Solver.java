@@ -1,37 +1,277 @@
 package dimple;
 
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableBiMap;
-import java.util.Collection;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// Solves a set of clauses over named variables. Clauses may be added between calls, and solve() may
+// be called under assumptions. Incremental calls reuse a single conflict driven search, keeping its
+// learned clauses, variable activities and watch lists. Variables without a name, such as those
+// introduced when encoding formulas, are left out of models.
 public class Solver {
-  private final ImmutableBiMap<String, Integer> variables;
-  private final LinkedList<Boolean[]> assignments;
-  private final AssignmentIterator assignmentIterator;
+  private static final int MODEL_CHARACTERISTICS =
+      Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+
+  private final BiMap<String, Integer> variables;
+  private int variableCount;
+  private long[] named;
+  private ClauseDatabase clauses;
+  private boolean ownsClauses;
+  private final SolverOptions options;
+  private final LinkedList<Assignment> assignments;
+  private AssignmentIterator assignmentIterator;
+  private CdclSearch search;
+  private Preprocessor preprocessor;
+  private ClauseDatabase simplified;
+  private CdclSearch simplifiedSearch;
+  private SolverStatistics statistics;
+
+  public Solver(ImmutableBiMap<String, Integer> variables, ClauseDatabase clauses) {
+    this(variables, clauses, SolverOptions.defaults());
+  }
 
   public Solver(
       ImmutableBiMap<String, Integer> variables,
-      Collection<Set<Integer>> clauses) {
-    this.variables = variables;
+      ClauseDatabase clauses,
+      SolverOptions options) {
+    this.variables = HashBiMap.create(variables);
+    this.variableCount = clauses.variables();
+    this.named = new long[0];
+    for (int variable : variables.values())
+      name(variable);
+    this.clauses = clauses;
+    this.ownsClauses = false;
+    this.options = options;
     this.assignments = new LinkedList<>();
-    this.assignmentIterator = new AssignmentIterator(variables, clauses);
+    this.statistics = SolverStatistics.EMPTY;
+  }
+
+  private AssignmentIterator assignmentIterator() {
+    if (assignmentIterator == null)
+      assignmentIterator = new AssignmentIterator(
+          variableCount, clauses, options.heuristic(variableCount));
+    return assignmentIterator;
+  }
+
+  private Model decodeAssignment(Assignment assignment) {
+    return new Model(assignment, variables, named);
+  }
+
+  private CdclSearch search() {
+    if (search == null)
+      search = new CdclSearch(variableCount, clauses, options);
+    return search;
+  }
+
+  // The clauses searched for a single model. Unless preprocessing is disabled they are simplified,
+  // and models of them are extended with extend() to the variables eliminated.
+  private ClauseDatabase simplified() {
+    if (!options.preprocessing())
+      return clauses;
+    if (simplified == null) {
+      preprocessor = new Preprocessor(variableCount, clauses);
+      simplified = preprocessor.simplify();
+    }
+    return simplified;
+  }
+
+  private Model extend(Assignment model) {
+    return decodeAssignment(options.preprocessing() ? preprocessor.extend(model) : model);
+  }
+
+  private CdclSearch simplifiedSearch() {
+    if (!options.preprocessing())
+      return search();
+    if (simplifiedSearch == null)
+      simplifiedSearch = new CdclSearch(variableCount, simplified(), options);
+    return simplifiedSearch;
+  }
+
+  private void name(int variable) {
+    variableCount = Math.max(variableCount, variable + 1);
+    if (variable >>> 6 >= named.length)
+      named = Arrays.copyOf(named, Math.max(named.length * 2, (variable >>> 6) + 1));
+    named[variable >>> 6] |= 1L << variable;
   }
 
-  private Map<String, Boolean> decodeAssignment(Boolean[] assignment) {
-    return IntStream.range(0, assignment.length)
-      .boxed()
-      .collect(Collectors.toMap((i) -> variables.inverse().get(i), (i) -> assignment[i]));
+  private int variable(String name) {
+    var variable = variables.get(name);
+    if (variable == null) {
+      variable = variableCount;
+      variables.put(name, variable);
+      name(variable);
+    }
+    return variable;
+  }
+
+  public SolverOptions options() {
+    return options;
+  }
+
+  private void modifyClauses() {
+    if (!ownsClauses) {
+      clauses = clauses.copy();
+      ownsClauses = true;
+    }
+    assignmentIterator = null;
+    assignments.clear();
+    preprocessor = null;
+    simplified = null;
+    simplifiedSearch = null;
+    if (search != null)
+      search.grow(variableCount);
+  }
+
+  private void addClause(int[] literals) {
+    modifyClauses();
+    clauses.add(literals);
+    if (search != null)
+      search.addClause(literals);
+  }
+
+  // The constraint is one stored by a clause database, which is neither a clause nor trivial.
+  private void addAtMost(int bound, int[] literals) {
+    modifyClauses();
+    clauses.addAtMost(bound, literals);
+    if (search != null)
+      search.addAtMost(bound, literals);
+  }
+
+  // The constraint is one stored by a clause database, over at least three distinct variables.
+  private void addXor(int[] literals) {
+    modifyClauses();
+    clauses.addXor(literals);
+    if (search != null)
+      search.addXor(literals);
+  }
+
+  // Adds a clause, given as the value each of its variables has to take to satisfy it.
+  public void addClause(Map<String, Boolean> literals) {
+    var clause = new int[literals.size()];
+    int i = 0;
+    for (var entry : literals.entrySet())
+      clause[i++] = Literals.of(variable(entry.getKey()), !entry.getValue());
+    addClause(clause);
+  }
+
+  private static int[] renumber(int[] literals, int[] renumbered) {
+    var result = new int[literals.length];
+    for (int i = 0; i < literals.length; i++)
+      result[i] = Literals.of(
+          renumbered[Literals.variable(literals[i])], Literals.isNegated(literals[i]));
+    return result;
+  }
+
+  // Adds clauses, cardinality and XOR constraints whose variables are numbered by the given map.
+  // Variables are matched by name, and every variable without a name becomes a new hidden variable.
+  public void addClauses(ImmutableBiMap<String, Integer> names, ClauseDatabase clauses) {
+    var renumbered = new int[clauses.variables()];
+    for (int i = 0; i < renumbered.length; i++) {
+      var name = names.inverse().get(i);
+      renumbered[i] = name != null ? variable(name) : variableCount++;
+    }
+
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref))
+      addClause(renumber(clauses.literals(ref), renumbered));
+    for (int constraint = 0; constraint < clauses.cardinalityCount(); constraint++)
+      addAtMost(clauses.cardinalityBound(constraint),
+          renumber(clauses.cardinalityLiterals(constraint), renumbered));
+    for (int constraint = 0; constraint < clauses.xorCount(); constraint++)
+      addXor(renumber(clauses.xorLiterals(constraint), renumbered));
+  }
+
+  // Writes the clauses and constraints added so far in DIMACS CNF, see Dimacs.write().
+  public void writeDimacs(Writer writer) throws IOException {
+    new DimacsWriter(variableCount, clauses).write(ImmutableBiMap.copyOf(variables), writer);
+  }
+
+  // Solves under the given assumptions, each the value a variable is required to take. Assuming a
+  // variable which does not occur in any clause adds it.
+  public Outcome solve(Map<String, Boolean> assumptions) {
+    var literals = new int[assumptions.size()];
+    int i = 0;
+    for (var entry : assumptions.entrySet())
+      literals[i++] = Literals.of(variable(entry.getKey()), !entry.getValue());
+
+    var search = search();
+    search.grow(variableCount);
+    var result = search.solve(literals);
+    statistics = search.statistics();
+    if (result == Result.SAT)
+      return new Outcome(result, decodeAssignment(search.model()).asMap(), Map.of());
+
+    var failed = new HashMap<String, Boolean>();
+    for (int literal : search.failedAssumptions())
+      failed.put(variables.inverse().get(Literals.variable(literal)), !Literals.isNegated(literal));
+    return new Outcome(result, null, failed);
+  }
+
+  private Optional<Model> solveConflictDriven() {
+    var search = simplifiedSearch();
+    search.grow(variableCount);
+    var result = search.solve();
+    statistics = search.statistics();
+    if (result == Result.SAT)
+      return Optional.of(extend(search.model()));
+    return Optional.empty();
+  }
+
+  // Statistics of the last conflict driven search, summed over all threads for cube and conquer.
+  public SolverStatistics statistics() {
+    return statistics;
+  }
+
+  private Optional<Model> solvePortfolio() {
+    var portfolio = new PortfolioSolver(variableCount, simplified(), options);
+    Result result;
+    try {
+      result = portfolio.solve();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while solving", exception);
+    }
+    statistics = portfolio.statistics();
+    if (result == Result.SAT)
+      return Optional.of(extend(portfolio.model()));
+    return Optional.empty();
+  }
+
+  private Optional<Model> solveCubes() {
+    var cubes = new CubeSolver(variableCount, simplified(), options);
+    var result = cubes.solve();
+    statistics = cubes.statistics();
+    if (result == Result.SAT)
+      return Optional.of(extend(cubes.model()));
+    return Optional.empty();
   }
 
   public Optional<Map<String, Boolean>> solve() {
+    return findModel().map(Model::asMap);
+  }
+
+  public Optional<Model> findModel() {
+    if (options.strategy() == SolverOptions.Strategy.CDCL)
+      return options.threads() > 1 ? solvePortfolio() : solveConflictDriven();
+    if (options.strategy() == SolverOptions.Strategy.CUBE_AND_CONQUER)
+      return solveCubes();
+
+    var assignmentIterator = assignmentIterator();
     if (assignmentIterator.hasNext())
-      assignments.add(assignmentIterator.next().clone());
+      assignments.add(assignmentIterator.next().copy());
     if (!assignmentIterator.hasNext()) // last value is always bogus
       assignments.removeLast();
 
@@ -41,15 +281,79 @@ public class Solver {
       return Optional.empty();
   }
 
-  public Optional<List<Map<String, Boolean>>> solveAll() {
-    if (assignmentIterator.hasNext())
-      assignmentIterator.forEachRemaining((assignment) -> assignments.add(assignment.clone()));
-    assignments.removeLast();
+  private boolean hasHiddenVariables() {
+    return variableCount > variables.size();
+  }
+
+  // Excludes every model which agrees with the given one on all named variables.
+  private int[] projectedBlockingClause(Assignment assignment) {
+    var clause = new int[variables.size()];
+    int i = 0;
+    for (int variable : variables.values())
+      clause[i++] = Literals.of(variable, assignment.get(variable));
+    return clause;
+  }
+
+  // Models are excluded one at a time by blocking clauses, in a search of their own. With hidden
+  // variables the blocking clauses are projected onto the named ones, so that models which only
+  // differ in hidden variables are found once.
+  private Spliterator<Assignment> conflictDrivenModels() {
+    var search = new CdclSearch(variableCount, clauses, options);
+    boolean project = hasHiddenVariables();
+    return new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, MODEL_CHARACTERISTICS) {
+      @Override
+      public boolean tryAdvance(Consumer<? super Assignment> action) {
+        if (search.solve() != Result.SAT)
+          return false;
+        var model = search.model();
+        action.accept(model);
+        if (project)
+          search.addClause(projectedBlockingClause(model));
+        else
+          search.blockModel();
+        return true;
+      }
+    };
+  }
+
+  // The iterator reuses a single assignment, which is decoded before the next one is searched for.
+  private Spliterator<Assignment> backtrackingModels() {
+    var iterator = new AssignmentIterator(
+        variableCount, clauses, options.heuristic(variableCount));
+    return new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, MODEL_CHARACTERISTICS) {
+      @Override
+      public boolean tryAdvance(Consumer<? super Assignment> action) {
+        if (!iterator.hasNext())
+          return false;
+        var assignment = iterator.next();
+        if (!iterator.hasNext()) // last value is always bogus
+          return false;
+        action.accept(assignment);
+        return true;
+      }
+    };
+  }
+
+  // Every model, each found only once the stream asks for it. Limit the stream to stop the search
+  // early. Models are never buffered, but the conflict driven search adds a permanent clause
+  // blocking each model it finds, so its memory grows with their number. Backtracking enumerates
+  // every assignment of the hidden variables too, and so is only used without them.
+  public Stream<Model> models() {
+    var models = options.strategy() == SolverOptions.Strategy.BACKTRACKING && !hasHiddenVariables()
+        ? backtrackingModels()
+        : conflictDrivenModels();
+    return StreamSupport.stream(models, false).map(this::decodeAssignment);
+  }
+
+  // The models as maps from variable name to value.
+  public Stream<Map<String, Boolean>> solutions() {
+    return models().map(Model::asMap);
+  }
 
-    if (assignments.isEmpty())
+  public Optional<List<Map<String, Boolean>>> solveAll() {
+    var solutions = solutions().collect(Collectors.toList());
+    if (solutions.isEmpty())
       return Optional.empty();
-    return Optional.of(assignments.stream()
-        .map((v) -> decodeAssignment(v))
-        .collect(Collectors.toList()));
+    return Optional.of(solutions);
   }
 }
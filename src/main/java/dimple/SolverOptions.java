@@ -0,0 +1,328 @@
+package dimple;
+
+import com.google.common.base.Preconditions;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+public final class SolverOptions {
+  public enum Strategy {
+    // Conflict driven clause learning with non-chronological backjumping.
+    CDCL,
+    // Chronological backtracking, see AssignmentIterator.
+    BACKTRACKING,
+    // Lookahead splitting into cubes which are solved in parallel, see CubeSolver.
+    CUBE_AND_CONQUER
+  }
+
+  public enum Encoding {
+    // The formula must already be in conjunctive normal form.
+    NONE,
+    // Disjunctions are distributed over conjunctions, which may grow the formula exponentially.
+    DISTRIBUTION,
+    // Every subformula is named by an auxiliary variable equivalent to it.
+    TSEITIN,
+    // Like TSEITIN, but only the direction of each definition needed by its polarity is emitted.
+    PLAISTED_GREENBAUM
+  }
+
+  public enum CardinalityEncoding {
+    // Kept as constraints of their own, which the searches propagate by counting true literals, see
+    // CardinalityPropagator. Constraints over operands which are not literals are encoded with
+    // SEQUENTIAL_COUNTER.
+    NATIVE,
+    // Counts the true literals in unary with k auxiliary variables after each literal, O(nk).
+    SEQUENTIAL_COUNTER,
+    // Splits the literals into groups of three, each with a commander variable true when one of the
+    // group is, and excludes all but one commander recursively, O(n). Bounds other than one are
+    // encoded with SEQUENTIAL_COUNTER.
+    COMMANDER,
+    // Sums the literals in unary along a binary tree, O(nk log n), and shares the sum between both
+    // bounds of (exactly k ...).
+    TOTALIZER
+  }
+
+  private final Strategy strategy;
+  private final Encoding encoding;
+  private final CardinalityEncoding cardinalityEncoding;
+  private final boolean gaussianElimination;
+  private final IntFunction<DecisionHeuristic> heuristic;
+  private final Supplier<RestartPolicy> restarts;
+  private final boolean phaseSaving;
+  private final boolean defaultPolarity;
+  private final int reduceInterval;
+  private final int reduceIncrement;
+  private final int glueLbd;
+  private final long learnedMemoryBudget;
+  private final int threads;
+  private final boolean sharing;
+  private final int shareMaxSize;
+  private final int shareMaxLbd;
+  private final int cubeDepth;
+  private final boolean preprocessing;
+
+  private SolverOptions(Builder builder) {
+    this.strategy = builder.strategy;
+    this.encoding = builder.encoding;
+    this.cardinalityEncoding = builder.cardinalityEncoding;
+    this.gaussianElimination = builder.gaussianElimination;
+    this.heuristic = builder.heuristic;
+    this.restarts = builder.restarts;
+    this.phaseSaving = builder.phaseSaving;
+    this.defaultPolarity = builder.defaultPolarity;
+    this.reduceInterval = builder.reduceInterval;
+    this.reduceIncrement = builder.reduceIncrement;
+    this.glueLbd = builder.glueLbd;
+    this.learnedMemoryBudget = builder.learnedMemoryBudget;
+    this.threads = builder.threads;
+    this.sharing = builder.sharing;
+    this.shareMaxSize = builder.shareMaxSize;
+    this.shareMaxLbd = builder.shareMaxLbd;
+    this.cubeDepth = builder.cubeDepth;
+    this.preprocessing = builder.preprocessing;
+  }
+
+  public static SolverOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Builder toBuilder() {
+    return new Builder()
+        .strategy(strategy)
+        .encoding(encoding)
+        .cardinalityEncoding(cardinalityEncoding)
+        .gaussianElimination(gaussianElimination)
+        .heuristic(heuristic)
+        .restarts(restarts)
+        .phaseSaving(phaseSaving)
+        .defaultPolarity(defaultPolarity)
+        .reduceInterval(reduceInterval)
+        .reduceIncrement(reduceIncrement)
+        .glueLbd(glueLbd)
+        .learnedMemoryBudget(learnedMemoryBudget)
+        .threads(threads)
+        .sharing(sharing)
+        .shareMaxSize(shareMaxSize)
+        .shareMaxLbd(shareMaxLbd)
+        .cubeDepth(cubeDepth)
+        .preprocessing(preprocessing);
+  }
+
+  public Strategy strategy() {
+    return strategy;
+  }
+
+  // How formulas which are not in conjunctive normal form are turned into clauses.
+  public Encoding encoding() {
+    return encoding;
+  }
+
+  // How (atmost k ...), (atleast k ...) and (exactly k ...) conjuncts are turned into clauses, if
+  // at all.
+  public CardinalityEncoding cardinalityEncoding() {
+    return cardinalityEncoding;
+  }
+
+  // Whether (xor ...) conjuncts over literals are kept as constraints of their own, which the
+  // searches propagate by Gauss-Jordan elimination, see XorPropagator. Otherwise they are split
+  // into XORs of four literals, chained by auxiliary variables, and encoded into clauses.
+  public boolean gaussianElimination() {
+    return gaussianElimination;
+  }
+
+  // Creates a decision heuristic for the given amount of variables.
+  public DecisionHeuristic heuristic(int variables) {
+    return heuristic.apply(variables);
+  }
+
+  public RestartPolicy restartPolicy() {
+    return restarts.get();
+  }
+
+  // Whether a variable is assigned its last value when branched on again.
+  public boolean phaseSaving() {
+    return phaseSaving;
+  }
+
+  // The value first tried for a variable which has no saved phase.
+  public boolean defaultPolarity() {
+    return defaultPolarity;
+  }
+
+  // Conflicts until the first reduction of the learned clause database.
+  public int reduceInterval() {
+    return reduceInterval;
+  }
+
+  // Growth of the interval between reductions after each reduction.
+  public int reduceIncrement() {
+    return reduceIncrement;
+  }
+
+  // Learned clauses with a literal block distance at most this are never deleted.
+  public int glueLbd() {
+    return glueLbd;
+  }
+
+  // Learned clauses are reduced early when they take more than this many bytes.
+  public long learnedMemoryBudget() {
+    return learnedMemoryBudget;
+  }
+
+  // The amount of diversified searches raced against each other by the conflict driven solver, or
+  // of threads solving cubes with cube and conquer.
+  public int threads() {
+    return threads;
+  }
+
+  // Whether parallel searches exchange learned clauses. Unit and binary clauses are always shared,
+  // longer clauses only when both their size and literal block distance are within the limits.
+  public boolean sharing() {
+    return sharing;
+  }
+
+  public int shareMaxSize() {
+    return shareMaxSize;
+  }
+
+  public int shareMaxLbd() {
+    return shareMaxLbd;
+  }
+
+  // The most variables a cube and conquer split branches on, at most 2^depth cubes are solved.
+  public int cubeDepth() {
+    return cubeDepth;
+  }
+
+  // Whether clauses are simplified before searching for a model, see Preprocessor. Enumeration of
+  // models and solving under assumptions always search the clauses as given.
+  public boolean preprocessing() {
+    return preprocessing;
+  }
+
+  public static final class Builder {
+    private Strategy strategy = Strategy.CDCL;
+    private Encoding encoding = Encoding.PLAISTED_GREENBAUM;
+    private CardinalityEncoding cardinalityEncoding = CardinalityEncoding.NATIVE;
+    private boolean gaussianElimination = true;
+    private IntFunction<DecisionHeuristic> heuristic = VsidsHeuristic::new;
+    private Supplier<RestartPolicy> restarts = LubyRestarts::new;
+    private boolean phaseSaving = true;
+    private boolean defaultPolarity = false;
+    private int reduceInterval = 2000;
+    private int reduceIncrement = 300;
+    private int glueLbd = 2;
+    private long learnedMemoryBudget = Long.MAX_VALUE;
+    private int threads = 1;
+    private boolean sharing = true;
+    private int shareMaxSize = 8;
+    private int shareMaxLbd = 2;
+    private int cubeDepth = 8;
+    private boolean preprocessing = true;
+
+    private Builder() {}
+
+    public Builder strategy(Strategy strategy) {
+      this.strategy = strategy;
+      return this;
+    }
+
+    public Builder encoding(Encoding encoding) {
+      this.encoding = encoding;
+      return this;
+    }
+
+    public Builder cardinalityEncoding(CardinalityEncoding cardinalityEncoding) {
+      this.cardinalityEncoding = cardinalityEncoding;
+      return this;
+    }
+
+    public Builder gaussianElimination(boolean gaussianElimination) {
+      this.gaussianElimination = gaussianElimination;
+      return this;
+    }
+
+    public Builder heuristic(IntFunction<DecisionHeuristic> heuristic) {
+      this.heuristic = heuristic;
+      return this;
+    }
+
+    public Builder restarts(Supplier<RestartPolicy> restarts) {
+      this.restarts = restarts;
+      return this;
+    }
+
+    public Builder phaseSaving(boolean phaseSaving) {
+      this.phaseSaving = phaseSaving;
+      return this;
+    }
+
+    public Builder defaultPolarity(boolean defaultPolarity) {
+      this.defaultPolarity = defaultPolarity;
+      return this;
+    }
+
+    public Builder reduceInterval(int reduceInterval) {
+      Preconditions.checkArgument(reduceInterval > 0, "Reduce interval must be positive");
+      this.reduceInterval = reduceInterval;
+      return this;
+    }
+
+    public Builder reduceIncrement(int reduceIncrement) {
+      Preconditions.checkArgument(reduceIncrement >= 0, "Reduce increment must not be negative");
+      this.reduceIncrement = reduceIncrement;
+      return this;
+    }
+
+    public Builder glueLbd(int glueLbd) {
+      this.glueLbd = glueLbd;
+      return this;
+    }
+
+    public Builder learnedMemoryBudget(long bytes) {
+      Preconditions.checkArgument(bytes > 0, "Memory budget must be positive");
+      this.learnedMemoryBudget = bytes;
+      return this;
+    }
+
+    public Builder threads(int threads) {
+      Preconditions.checkArgument(threads > 0, "Thread count must be positive");
+      this.threads = threads;
+      return this;
+    }
+
+    public Builder sharing(boolean sharing) {
+      this.sharing = sharing;
+      return this;
+    }
+
+    public Builder shareMaxSize(int shareMaxSize) {
+      this.shareMaxSize = shareMaxSize;
+      return this;
+    }
+
+    public Builder shareMaxLbd(int shareMaxLbd) {
+      this.shareMaxLbd = shareMaxLbd;
+      return this;
+    }
+
+    public Builder cubeDepth(int cubeDepth) {
+      Preconditions.checkArgument(
+          cubeDepth >= 0 && cubeDepth < 31, "Cube depth must be between 0 and 30");
+      this.cubeDepth = cubeDepth;
+      return this;
+    }
+
+    public Builder preprocessing(boolean preprocessing) {
+      this.preprocessing = preprocessing;
+      return this;
+    }
+
+    public SolverOptions build() {
+      return new SolverOptions(this);
+    }
+  }
+}
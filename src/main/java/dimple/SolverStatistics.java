@@ -0,0 +1,135 @@
+package dimple;
+
+public final class SolverStatistics {
+  static final SolverStatistics EMPTY = new SolverStatistics(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+  private final long conflicts;
+  private final long decisions;
+  private final long propagations;
+  private final long restarts;
+  private final long reductions;
+  private final long learnedClauses;
+  private final long glueClauses;
+  private final long deletedClauses;
+  private final long learnedBytes;
+  private final long exportedClauses;
+  private final long importedClauses;
+  private final long usefulImports;
+
+  SolverStatistics(
+      long conflicts,
+      long decisions,
+      long propagations,
+      long restarts,
+      long reductions,
+      long learnedClauses,
+      long glueClauses,
+      long deletedClauses,
+      long learnedBytes,
+      long exportedClauses,
+      long importedClauses,
+      long usefulImports) {
+    this.conflicts = conflicts;
+    this.decisions = decisions;
+    this.propagations = propagations;
+    this.restarts = restarts;
+    this.reductions = reductions;
+    this.learnedClauses = learnedClauses;
+    this.glueClauses = glueClauses;
+    this.deletedClauses = deletedClauses;
+    this.learnedBytes = learnedBytes;
+    this.exportedClauses = exportedClauses;
+    this.importedClauses = importedClauses;
+    this.usefulImports = usefulImports;
+  }
+
+  // The same statistics with the clause sharing counters replaced.
+  SolverStatistics withSharing(long exported, long imported, long useful) {
+    return new SolverStatistics(
+        conflicts, decisions, propagations, restarts, reductions, learnedClauses, glueClauses,
+        deletedClauses, learnedBytes, exported, imported, useful);
+  }
+
+  // Every counter summed with the other statistics' counter.
+  SolverStatistics plus(SolverStatistics other) {
+    return new SolverStatistics(
+        conflicts + other.conflicts,
+        decisions + other.decisions,
+        propagations + other.propagations,
+        restarts + other.restarts,
+        reductions + other.reductions,
+        learnedClauses + other.learnedClauses,
+        glueClauses + other.glueClauses,
+        deletedClauses + other.deletedClauses,
+        learnedBytes + other.learnedBytes,
+        exportedClauses + other.exportedClauses,
+        importedClauses + other.importedClauses,
+        usefulImports + other.usefulImports);
+  }
+
+  public long conflicts() {
+    return conflicts;
+  }
+
+  public long decisions() {
+    return decisions;
+  }
+
+  public long propagations() {
+    return propagations;
+  }
+
+  public long restarts() {
+    return restarts;
+  }
+
+  // The number of times the learned clause database was reduced.
+  public long reductions() {
+    return reductions;
+  }
+
+  // Learned clauses currently kept, including glue clauses.
+  public long learnedClauses() {
+    return learnedClauses;
+  }
+
+  // Learned clauses which are kept permanently because of their low literal block distance.
+  public long glueClauses() {
+    return glueClauses;
+  }
+
+  public long deletedClauses() {
+    return deletedClauses;
+  }
+
+  // Memory used by the learned clauses currently kept.
+  public long learnedBytes() {
+    return learnedBytes;
+  }
+
+  // Learned clauses shared with other searches.
+  public long exportedClauses() {
+    return exportedClauses;
+  }
+
+  // Clauses received from other searches.
+  public long importedClauses() {
+    return importedClauses;
+  }
+
+  // Received clauses which later took part in a conflict.
+  public long usefulImports() {
+    return usefulImports;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "conflicts: %d\ndecisions: %d\npropagations: %d\nrestarts: %d\nreductions: %d\n"
+        + "learned clauses: %d\nglue clauses: %d\ndeleted clauses: %d\nlearned bytes: %d\n"
+        + "exported clauses: %d\nimported clauses: %d\nuseful imports: %d",
+        conflicts, decisions, propagations, restarts, reductions,
+        learnedClauses, glueClauses, deletedClauses, learnedBytes,
+        exportedClauses, importedClauses, usefulImports);
+  }
+}
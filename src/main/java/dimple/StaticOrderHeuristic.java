@@ -0,0 +1,29 @@
+package dimple;
+
+// Branches on variables in the order they were numbered.
+public final class StaticOrderHeuristic implements DecisionHeuristic {
+  private int variables;
+  private int nextVariable;
+
+  public StaticOrderHeuristic(int variables) {
+    this.variables = variables;
+    this.nextVariable = 0;
+  }
+
+  @Override
+  public void unassigned(int variable) {
+    nextVariable = Math.min(nextVariable, variable);
+  }
+
+  @Override
+  public void grow(int variables) {
+    this.variables = Math.max(this.variables, variables);
+  }
+
+  @Override
+  public int next(Assignment assignment) {
+    while (nextVariable < variables && assignment.isAssigned(nextVariable))
+      nextVariable += 1;
+    return nextVariable < variables ? nextVariable : -1;
+  }
+}
@@ -0,0 +1,91 @@
+package dimple;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Exponential variable state independent decaying sum. Instead of decaying the activity of every
+// variable after a conflict, the bump increment grows geometrically, and all activities are scaled
+// down together once they grow too large.
+public final class VsidsHeuristic implements DecisionHeuristic {
+  private static final double RESCALE_LIMIT = 1e100;
+
+  private final double decay;
+  private double[] activity;
+  private final IntHeap heap;
+  private double increment;
+
+  public VsidsHeuristic(int variables) {
+    this(variables, 0.95);
+  }
+
+  public VsidsHeuristic(int variables, double decay) {
+    this(new double[variables], decay);
+  }
+
+  // Breaks ties between variables of equal activity randomly.
+  public VsidsHeuristic(int variables, double decay, long seed) {
+    this(tieBreakingActivities(variables, seed), decay);
+  }
+
+  // Every variable starts with the given activity.
+  private VsidsHeuristic(double[] activity, double decay) {
+    this.decay = decay;
+    this.activity = activity;
+    this.heap = new IntHeap(activity);
+    this.increment = 1.0;
+
+    for (int variable = 0; variable < activity.length; variable++)
+      heap.insert(variable);
+  }
+
+  private static double[] tieBreakingActivities(int variables, long seed) {
+    var random = new Random(seed);
+    var activity = new double[variables];
+    for (int variable = 0; variable < variables; variable++)
+      activity[variable] = random.nextDouble() * 1e-5;
+    return activity;
+  }
+
+  @Override
+  public void bump(int variable) {
+    activity[variable] += increment;
+    if (activity[variable] > RESCALE_LIMIT) {
+      for (int i = 0; i < activity.length; i++)
+        activity[i] /= RESCALE_LIMIT;
+      increment /= RESCALE_LIMIT;
+    }
+    heap.increased(variable);
+  }
+
+  @Override
+  public void decay() {
+    increment /= decay;
+  }
+
+  @Override
+  public void unassigned(int variable) {
+    if (!heap.contains(variable))
+      heap.insert(variable);
+  }
+
+  @Override
+  public void grow(int variables) {
+    int previous = activity.length;
+    if (variables <= previous)
+      return;
+    activity = Arrays.copyOf(activity, variables);
+    heap.grow(activity);
+    for (int variable = previous; variable < variables; variable++)
+      heap.insert(variable);
+  }
+
+  @Override
+  public int next(Assignment assignment) {
+    while (!heap.isEmpty()) {
+      int variable = heap.removeMax();
+      if (!assignment.isAssigned(variable))
+        return variable;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,270 @@
+package dimple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Propagates the XOR constraints of a clause database by Gauss-Jordan elimination over GF(2). Each
+// constraint is a row of a matrix whose columns are the variables of the constraints, packed 64 to
+// a long, and whose right hand side is the parity the row requires. The matrix is kept in reduced
+// row echelon form: every row has a basic column which no other row has.
+//
+// When the basic variable of a row is assigned while another variable of the row is not, that one
+// becomes basic instead and is eliminated from the other rows by adding the row to them. A row
+// left with only its basic variable unassigned implies it, and a row with none is a conflict when
+// its parity is wrong. Since basic variables occur in their own row alone, a sum of rows has no
+// fewer unassigned variables than any of them, so every literal implied by the constraints
+// together is found. Adding rows never changes the solutions of the matrix, so it is not restored
+// on backtracking, only checked again.
+final class XorPropagator {
+  // Assigns a literal implied by a row, given the clause which explains it with the literal first.
+  interface Implication {
+    void imply(int literal, int[] reason);
+  }
+
+  private final List<int[]> constraints;
+  private int[] columns;
+  private int[] variables;
+  private int words;
+
+  private long[][] rows;
+  private boolean[] parities;
+  private int[] basics;
+  private int size;
+  private boolean refuted;
+
+  // The columns of the literals of the trail before the head, and those of them which are true.
+  private long[] assigned;
+  private long[] values;
+  private int head;
+  private boolean[] scheduled;
+  private final IntVector queue;
+
+  XorPropagator(int variables, ClauseDatabase clauses) {
+    this.constraints = new ArrayList<>();
+    for (int constraint = 0; constraint < clauses.xorCount(); constraint++)
+      constraints.add(clauses.xorLiterals(constraint));
+    this.columns = new int[variables];
+    this.queue = new IntVector();
+    eliminate();
+  }
+
+  void grow(int variables) {
+    int previous = columns.length;
+    if (variables <= previous)
+      return;
+    columns = Arrays.copyOf(columns, variables);
+    Arrays.fill(columns, previous, variables, -1);
+  }
+
+  // Adds a constraint, as stored by ClauseDatabase.addXor(), and eliminates the matrix again. The
+  // trail is then counted from the start.
+  void add(int[] constraint) {
+    constraints.add(constraint);
+    eliminate();
+  }
+
+  // Whether the constraints have no solution at all.
+  boolean refuted() {
+    return refuted;
+  }
+
+  private void eliminate() {
+    Arrays.fill(columns, -1);
+    var variables = new IntVector();
+    for (var literals : constraints)
+      for (int literal : literals)
+        if (columns[literal >> 1] == -1) {
+          columns[literal >> 1] = variables.size;
+          variables.add(literal >> 1);
+        }
+    this.variables = variables.toArray();
+    this.words = (variables.size + 63) >>> 6;
+
+    rows = new long[constraints.size()][words];
+    parities = new boolean[rows.length];
+    for (int row = 0; row < rows.length; row++) {
+      parities[row] = true;
+      for (int literal : constraints.get(row)) {
+        int column = columns[literal >> 1];
+        rows[row][column >>> 6] ^= 1L << column;
+        parities[row] ^= (literal & 1) != 0;
+      }
+    }
+
+    basics = new int[rows.length];
+    size = 0;
+    for (int column = 0; column < variables.size; column++) {
+      int word = column >>> 6;
+      long bit = 1L << column;
+      int pivot = size;
+      while (pivot < rows.length && (rows[pivot][word] & bit) == 0)
+        pivot++;
+      if (pivot == rows.length)
+        continue;
+
+      swap(pivot, size);
+      for (int row = 0; row < rows.length; row++)
+        if (row != size && (rows[row][word] & bit) != 0)
+          addRow(size, row);
+      basics[size++] = column;
+    }
+    // The rows left are empty, and hold only when their parity is even.
+    refuted = false;
+    for (int row = size; row < rows.length; row++)
+      refuted |= parities[row];
+
+    assigned = new long[words];
+    values = new long[words];
+    head = 0;
+    scheduled = new boolean[size];
+    queue.clear();
+    for (int row = 0; row < size; row++)
+      schedule(row);
+  }
+
+  private void swap(int first, int second) {
+    var row = rows[first];
+    rows[first] = rows[second];
+    rows[second] = row;
+    boolean parity = parities[first];
+    parities[first] = parities[second];
+    parities[second] = parity;
+  }
+
+  private void addRow(int from, int to) {
+    for (int word = 0; word < words; word++)
+      rows[to][word] ^= rows[from][word];
+    parities[to] ^= parities[from];
+  }
+
+  private void schedule(int row) {
+    if (!scheduled[row]) {
+      scheduled[row] = true;
+      queue.add(row);
+    }
+  }
+
+  private boolean isAssigned(int column) {
+    return (assigned[column >>> 6] & 1L << column) != 0;
+  }
+
+  private int column(int literal) {
+    int variable = literal >> 1;
+    return variable < columns.length ? columns[variable] : -1;
+  }
+
+  // Whether there are literals on the trail left to count, or rows left to check.
+  boolean pending(IntVector trail) {
+    return head < trail.size || !queue.isEmpty();
+  }
+
+  // The false literals of the variables of a row, all assigned but for the one of the given
+  // literal, which goes first. Without a literal the clause is a conflict.
+  private int[] clause(int row, int literal) {
+    var clause = new IntVector();
+    if (literal != -1)
+      clause.add(literal);
+    for (int word = 0; word < words; word++)
+      for (long bits = rows[row][word]; bits != 0; bits &= bits - 1) {
+        int bit = Long.numberOfTrailingZeros(bits);
+        int variable = variables[word << 6 | bit];
+        if (literal == -1 || variable != literal >> 1)
+          clause.add(variable << 1 | (int)(values[word] >>> bit & 1));
+      }
+    return clause.toArray();
+  }
+
+  // Counts the literals of the trail from the head on, including those implied on the way. Returns
+  // the clause of a row with the wrong parity, whose literals are all false, or null once the whole
+  // trail is counted.
+  int[] propagate(IntVector trail, Assignment assignment, Implication implication) {
+    while (true) {
+      while (head < trail.size) {
+        int literal = trail.data[head++];
+        int column = column(literal);
+        if (column == -1)
+          continue;
+        int word = column >>> 6;
+        long bit = 1L << column;
+        assigned[word] |= bit;
+        if ((literal & 1) == 0)
+          values[word] |= bit;
+        for (int row = 0; row < size; row++)
+          if ((rows[row][word] & bit) != 0)
+            schedule(row);
+      }
+      if (queue.isEmpty())
+        return null;
+
+      int row = queue.pop();
+      scheduled[row] = false;
+      var conflict = check(row, assignment, implication);
+      if (conflict != null)
+        return conflict;
+    }
+  }
+
+  private int[] check(int row, Assignment assignment, Implication implication) {
+    int basic = basics[row];
+    var bits = rows[row];
+    for (int word = 0; word < words; word++) {
+      long unassigned = bits[word] & ~assigned[word];
+      if (word == basic >>> 6)
+        unassigned &= ~(1L << basic);
+      if (unassigned != 0) {
+        if (isAssigned(basic))
+          pivot(row, word << 6 | Long.numberOfTrailingZeros(unassigned));
+        return null;
+      }
+    }
+
+    boolean parity = parities[row];
+    for (int word = 0; word < words; word++)
+      parity ^= (Long.bitCount(bits[word] & values[word]) & 1) != 0;
+    if (isAssigned(basic))
+      return parity ? clause(row, -1) : null;
+
+    // The basic variable takes the parity the rest of the row leaves.
+    int literal = variables[basic] << 1 | (parity ? 0 : 1);
+    byte value = assignment.valueOf(literal);
+    if (value == Assignment.TRUE)
+      return null;
+    var reason = clause(row, literal);
+    if (value == Assignment.FALSE)
+      return reason;
+    implication.imply(literal, reason);
+    return null;
+  }
+
+  // Makes an unassigned column of a row basic, by adding the row to every other row which has it.
+  private void pivot(int row, int column) {
+    int word = column >>> 6;
+    long bit = 1L << column;
+    for (int other = 0; other < size; other++)
+      if (other != row && (rows[other][word] & bit) != 0) {
+        addRow(row, other);
+        schedule(other);
+      }
+    basics[row] = column;
+    schedule(row);
+  }
+
+  // Uncounts the literals of the trail from the given position on, before they are unassigned.
+  // Every row is checked again, as rows whose variables were all assigned may have a basic
+  // variable assigned along with others which are not.
+  void backtrack(IntVector trail, int limit) {
+    if (head <= limit)
+      return;
+    for (int i = limit; i < Math.min(head, trail.size); i++) {
+      int column = column(trail.data[i]);
+      if (column != -1) {
+        assigned[column >>> 6] &= ~(1L << column);
+        values[column >>> 6] &= ~(1L << column);
+      }
+    }
+    head = limit;
+    for (int row = 0; row < size; row++)
+      schedule(row);
+  }
+}
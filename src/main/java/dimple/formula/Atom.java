@@ -8,8 +8,16 @@ public abstract class Atom implements Formula {
   }
 
   public static class Var extends Atom {
+    // Auxiliary variables name subformulas during encoding, and are hidden from models.
+    final boolean auxiliary;
+
     public Var(String value) {
+      this(value, false);
+    }
+
+    Var(String value, boolean auxiliary) {
       super(value);
+      this.auxiliary = auxiliary;
     }
 
     @Override
@@ -9,28 +9,6 @@ public abstract class BinaryConnective implements Formula {
     this.right = right;
   }
 
-  public static class And extends BinaryConnective {
-    public And(Formula left, Formula right) {
-      super(left, right);
-    }
-
-    @Override
-    public <T> T accept(FormulaVisitor<T> visitor) {
-      return visitor.visit(this);
-    }
-  }
-
-  public static class Or extends BinaryConnective {
-    public Or(Formula left, Formula right) {
-      super(left, right);
-    }
-
-    @Override
-    public <T> T accept(FormulaVisitor<T> visitor) {
-      return visitor.visit(this);
-    }
-  }
-
   public static class If extends BinaryConnective {
     public If(Formula left, Formula right) {
       super(left, right);
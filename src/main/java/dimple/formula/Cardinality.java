@@ -0,0 +1,24 @@
+package dimple.formula;
+
+import com.google.common.base.Preconditions;
+
+// Holds when the amount of true operands is between two bounds, inclusive. The bounds are those of
+// (atmost k ...), (atleast k ...) or (exactly k ...), see FormulaFactory.
+public class Cardinality implements Formula {
+  final int atLeast;
+  final int atMost;
+  final Formula[] operands;
+
+  Cardinality(int atLeast, int atMost, Formula[] operands) {
+    Preconditions.checkArgument(operands.length >= 1, "Expected at least one operand");
+    Preconditions.checkArgument(0 <= atLeast && atLeast <= atMost, "Invalid bounds");
+    this.atLeast = atLeast;
+    this.atMost = atMost;
+    this.operands = operands;
+  }
+
+  @Override
+  public <T> T accept(FormulaVisitor<T> visitor) {
+    return visitor.visit(this);
+  }
+}
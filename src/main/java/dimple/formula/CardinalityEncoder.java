@@ -0,0 +1,204 @@
+package dimple.formula;
+
+import dimple.ClauseEncoder;
+import dimple.Literals;
+import dimple.SolverOptions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Encodes cardinality and XOR constraints into clauses, in which partial counts of the true
+// operands are named by auxiliary variables. Operands which are not literals are kept as they are,
+// and are left for the encoding of the rest of the formula. The clauses of every constraint added
+// are collected in order, and auxiliary variables are numbered across all of them.
+public final class CardinalityEncoder {
+  // Up to this many literals, excluding every pair takes no more clauses than the other encodings,
+  // and no auxiliary variables.
+  private static final int PAIRWISE_LIMIT = 5;
+  private static final int GROUP_SIZE = 3;
+
+  private final FormulaFactory factory;
+  private final SolverOptions.CardinalityEncoding encoding;
+  private final List<Formula> clauses;
+  private int auxiliaries;
+
+  public CardinalityEncoder(FormulaFactory factory, SolverOptions.CardinalityEncoding encoding) {
+    this.factory = factory;
+    this.encoding = encoding;
+    this.clauses = new ArrayList<>();
+  }
+
+  public List<Formula> clauses() {
+    return clauses;
+  }
+
+  private Formula fresh() {
+    return factory.auxiliary("#" + auxiliaries++);
+  }
+
+  private Formula negate(Formula literal) {
+    if (literal instanceof UnaryConnective.Not)
+      return ((UnaryConnective.Not)literal).argument;
+    return factory.not(literal);
+  }
+
+  private Formula[] negate(Formula[] literals) {
+    var negated = new Formula[literals.length];
+    for (int i = 0; i < literals.length; i++)
+      negated[i] = negate(literals[i]);
+    return negated;
+  }
+
+  // Literals given as null are left out.
+  private void clause(Formula... literals) {
+    var clause = new ArrayList<Formula>(literals.length);
+    for (var literal : literals)
+      if (literal != null)
+        clause.add(literal);
+    clauses.add(factory.or(clause));
+  }
+
+  // Encodes by a ClauseEncoder over numbered literals. The ith variable stands for the ith of the
+  // given formulas, and fresh variables for auxiliary ones, which are added to the formulas.
+  private ClauseEncoder numbered(List<Formula> formulas) {
+    return new ClauseEncoder() {
+      @Override
+      protected int fresh() {
+        formulas.add(CardinalityEncoder.this.fresh());
+        return Literals.of(formulas.size() - 1, false);
+      }
+
+      @Override
+      protected void clause(int... literals) {
+        var clause = new Formula[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+          var formula = formulas.get(Literals.variable(literals[i]));
+          clause[i] = Literals.isNegated(literals[i]) ? negate(formula) : formula;
+        }
+        CardinalityEncoder.this.clause(clause);
+      }
+    };
+  }
+
+  // The positive literals of the first n variables.
+  private static int[] positive(int n) {
+    var literals = new int[n];
+    for (int i = 0; i < n; i++)
+      literals[i] = Literals.of(i, false);
+    return literals;
+  }
+
+  public void add(Cardinality constraint) {
+    var literals = constraint.operands;
+    int atMost = Math.min(constraint.atMost, literals.length);
+    if (constraint.atLeast == 0 && atMost == literals.length) {
+      // A constraint which always holds still mentions its operands, in a tautology.
+      var tautology = Arrays.copyOf(literals, literals.length + 1);
+      tautology[literals.length] = negate(literals[0]);
+      clause(tautology);
+    } else if (constraint.atLeast > atMost) {
+      var contradiction = fresh();
+      clause(contradiction);
+      clause(negate(contradiction));
+    } else if (atMost == 0) {
+      for (var literal : literals)
+        clause(negate(literal));
+    } else if (constraint.atLeast == literals.length) {
+      for (var literal : literals)
+        clause(literal);
+    } else if (encoding == SolverOptions.CardinalityEncoding.TOTALIZER
+        && constraint.atLeast > 1) {
+      totalizer(constraint.atLeast, atMost, literals);
+    } else {
+      if (constraint.atLeast == 1)
+        clause(literals);
+      else if (constraint.atLeast > 1)
+        atMost(literals.length - constraint.atLeast, negate(literals));
+      if (atMost < literals.length)
+        atMost(atMost, literals);
+    }
+  }
+
+  public void add(NaryConnective.Xor constraint) {
+    var operands = constraint.operands;
+    numbered(new ArrayList<>(List.of(operands))).xor(positive(operands.length));
+  }
+
+  private void atMost(int bound, Formula[] literals) {
+    if (bound == 1 && literals.length <= PAIRWISE_LIMIT)
+      pairwise(literals);
+    else if (bound == 1 && encoding == SolverOptions.CardinalityEncoding.COMMANDER)
+      commander(literals);
+    else if (encoding == SolverOptions.CardinalityEncoding.TOTALIZER)
+      totalizer(0, bound, literals);
+    else
+      numbered(new ArrayList<>(List.of(literals))).atMost(bound, positive(literals.length));
+  }
+
+  private void pairwise(Formula[] literals) {
+    for (int i = 0; i < literals.length; i++)
+      for (int j = i + 1; j < literals.length; j++)
+        clause(negate(literals[i]), negate(literals[j]));
+  }
+
+  // At most one literal of each group is true, and any of them implies the commander of the group.
+  // At most one commander is then true, which is encoded the same way until few are left.
+  private void commander(Formula[] literals) {
+    while (literals.length > PAIRWISE_LIMIT) {
+      var commanders = new Formula[(literals.length + GROUP_SIZE - 1) / GROUP_SIZE];
+      for (int group = 0; group < commanders.length; group++) {
+        int from = group * GROUP_SIZE;
+        int to = Math.min(from + GROUP_SIZE, literals.length);
+        if (to - from == 1) {
+          commanders[group] = literals[from];
+          continue;
+        }
+        commanders[group] = fresh();
+        for (int i = from; i < to; i++) {
+          clause(negate(literals[i]), commanders[group]);
+          for (int j = i + 1; j < to; j++)
+            clause(negate(literals[i]), negate(literals[j]));
+        }
+      }
+      literals = commanders;
+    }
+    pairwise(literals);
+  }
+
+  private void totalizer(int atLeast, int atMost, Formula[] literals) {
+    int width = atMost < literals.length ? atMost + 1 : atLeast;
+    var sum = sum(literals, 0, literals.length, width, atMost < literals.length, atLeast > 0);
+    if (atLeast > 0)
+      clause(sum[atLeast - 1]);
+    if (atMost < literals.length)
+      clause(negate(sum[atMost]));
+  }
+
+  // Sums literals[from, to) in unary into at most width variables, the jth of which is implied by
+  // at least j + 1 true literals when counting up, and implies them when counting down.
+  private Formula[] sum(
+      Formula[] literals, int from, int to, int width, boolean up, boolean down) {
+    if (to - from == 1)
+      return new Formula[] {literals[from]};
+    int middle = (from + to) >>> 1;
+    var left = sum(literals, from, middle, width, up, down);
+    var right = sum(literals, middle, to, width, up, down);
+
+    var sum = new Formula[Math.min(to - from, width)];
+    for (int j = 0; j < sum.length; j++)
+      sum[j] = fresh();
+    for (int i = 0; i <= left.length; i++)
+      for (int j = 0; j <= right.length; j++) {
+        int total = i + j;
+        // At least i true on the left and j on the right make at least i + j.
+        if (up && total > 0 && total <= sum.length)
+          clause(i > 0 ? negate(left[i - 1]) : null, j > 0 ? negate(right[j - 1]) : null,
+              sum[total - 1]);
+        // At most i true on the left and j on the right make at most i + j.
+        if (down && total < sum.length)
+          clause(i < left.length ? left[i] : null, j < right.length ? right[j] : null,
+              negate(sum[total]));
+      }
+    return sum;
+  }
+}
@@ -1,119 +1,600 @@
 package dimple.formula;
 
+import com.google.common.base.Preconditions;
+import dimple.SolverOptions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public class CnfConverter {
-  private static class NopVisitor implements FormulaVisitor<Formula> {
+  // Rewrites each distinct node once, after its operands, and builds the result through a factory,
+  // so shared subformulas stay shared and a pass is linear in the size of the formula as a graph.
+  private static class NopVisitor extends PostOrderVisitor<Formula> {
+    final FormulaFactory factory;
+
+    NopVisitor(FormulaFactory factory) {
+      this.factory = factory;
+    }
+
+    Formula[] values(Formula[] operands) {
+      var values = new Formula[operands.length];
+      for (int i = 0; i < operands.length; i++)
+        values[i] = value(operands[i]);
+      return values;
+    }
+
     @Override
     public Formula visit(Atom.Var formula) {
-      return formula;
+      return factory.intern(formula);
     }
 
     @Override
     public Formula visit(UnaryConnective.Not formula) {
-      return new UnaryConnective.Not(formula.argument.accept(this));
+      return factory.not(value(formula.argument));
     }
 
     @Override
-    public Formula visit(BinaryConnective.And formula) {
-      return new BinaryConnective.And(formula.left.accept(this), formula.right.accept(this));
+    public Formula visit(NaryConnective.And formula) {
+      return factory.and(values(formula.operands));
     }
 
     @Override
-    public Formula visit(BinaryConnective.Or formula) {
-      return new BinaryConnective.Or(formula.left.accept(this), formula.right.accept(this));
+    public Formula visit(NaryConnective.Or formula) {
+      return factory.or(values(formula.operands));
+    }
+
+    @Override
+    public Formula visit(NaryConnective.Xor formula) {
+      return factory.xor(values(formula.operands));
     }
 
     @Override
     public Formula visit(BinaryConnective.If formula) {
-      return new BinaryConnective.If(formula.left.accept(this), formula.right.accept(this));
+      return factory.implies(value(formula.left), value(formula.right));
     }
 
     @Override
     public Formula visit(BinaryConnective.Iff formula) {
-      return new BinaryConnective.Iff(formula.left.accept(this), formula.right.accept(this));
+      return factory.iff(value(formula.left), value(formula.right));
+    }
+
+    @Override
+    public Formula visit(Cardinality formula) {
+      return factory.cardinality(formula.atLeast, formula.atMost, values(formula.operands));
+    }
+  }
+
+  // Expands cardinality and XOR constraints into equivalent formulas without auxiliary variables,
+  // for those which are not conjuncts of the formula. The formula for "at least j of the operands
+  // from the ith on" is shared by those for "at least j + 1 from the (i - 1)th on" and "at least j
+  // from the (i - 1)th on", so the expansion of n operands and a bound of k has O(nk) distinct
+  // nodes. An XOR becomes a chain of negated biconditionals, which the definitional encodings name
+  // one by one.
+  private static class ConstraintExpansionVisitor extends NopVisitor {
+    ConstraintExpansionVisitor(FormulaFactory factory) {
+      super(factory);
+    }
+
+    @Override
+    public Formula visit(Cardinality formula) {
+      var operands = values(formula.operands);
+      int n = operands.length;
+      if (formula.atLeast > n)
+        return factory.and(operands[0], factory.not(operands[0]));
+      int needed = Math.min(Math.max(formula.atLeast, formula.atMost + 1), n);
+      // atLeast[j] is the formula for at least j of the operands from the ith on, or null when
+      // there are fewer than j of them.
+      var atLeast = new Formula[needed + 1];
+      for (int i = n - 1; i >= 0; i--)
+        for (int j = Math.min(needed, n - i); j >= 1; j--) {
+          var taken = j == 1 ? operands[i] : factory.and(operands[i], atLeast[j - 1]);
+          atLeast[j] = atLeast[j] == null ? taken : factory.or(taken, atLeast[j]);
+        }
+
+      var conjuncts = new ArrayList<Formula>(2);
+      if (formula.atLeast > 0)
+        conjuncts.add(atLeast[formula.atLeast]);
+      if (formula.atMost < n)
+        conjuncts.add(factory.not(atLeast[formula.atMost + 1]));
+      if (conjuncts.isEmpty())
+        return factory.or(operands[0], factory.not(operands[0]));
+      return factory.and(conjuncts);
+    }
+
+    // (xor a b c) -> (not (iff (not (iff a b)) c))
+    @Override
+    public Formula visit(NaryConnective.Xor formula) {
+      var operands = values(formula.operands);
+      var parity = operands[0];
+      for (int i = 1; i < operands.length; i++)
+        parity = factory.not(factory.iff(parity, operands[i]));
+      return parity;
     }
   }
 
   private static class BiconditionalEliminationVisitor extends NopVisitor {
+    BiconditionalEliminationVisitor(FormulaFactory factory) {
+      super(factory);
+    }
+
     @Override
     public Formula visit(BinaryConnective.Iff formula) {
-      return new BinaryConnective.And(
-            new BinaryConnective.Or(
-                formula.left.accept(this), new UnaryConnective.Not(formula.right.accept(this))),
-            new BinaryConnective.Or(
-                new UnaryConnective.Not(formula.left.accept(this)), formula.right.accept(this)));
+      var left = value(formula.left);
+      var right = value(formula.right);
+      return factory.and(
+          factory.or(left, factory.not(right)), factory.or(factory.not(left), right));
     }
   }
 
   private static class ImplicationEliminationVisitor extends NopVisitor {
+    ImplicationEliminationVisitor(FormulaFactory factory) {
+      super(factory);
+    }
+
     @Override
     public Formula visit(BinaryConnective.If formula) {
-      return new BinaryConnective.Or(
-          new UnaryConnective.Not(formula.left.accept(this)), formula.right.accept(this));
+      return factory.or(factory.not(value(formula.left)), value(formula.right));
     }
   }
 
-  private static class NotPropagationVisitor extends NopVisitor {
-    private class NotPropagationVisitorInner extends NopVisitor {
-      // (not (and a b)) -> (or (not a) (not b))
-      @Override
-      public Formula visit(BinaryConnective.And formula) {
-        return new BinaryConnective.Or(
-            new UnaryConnective.Not(formula.left).accept(NotPropagationVisitor.this),
-            new UnaryConnective.Not(formula.right).accept(NotPropagationVisitor.this));
-      }
+  // Pushes negations down to the variables. Every node is rewritten both as it is and negated, as
+  // the pair {formula, negation}, so that the negation of a node is at hand for its parents.
+  private static class NotPropagationVisitor extends PostOrderVisitor<Formula[]> {
+    private final FormulaFactory factory;
 
-      // (not (or a b)) -> (and (not a) (not b))
-      @Override
-      public Formula visit(BinaryConnective.Or formula) {
-        return new BinaryConnective.And(
-            new UnaryConnective.Not(formula.left).accept(NotPropagationVisitor.this),
-            new UnaryConnective.Not(formula.right).accept(NotPropagationVisitor.this));
-      }
+    NotPropagationVisitor(FormulaFactory factory) {
+      this.factory = factory;
+    }
 
-      // (not (not a)) -> a
-      @Override
-      public Formula visit(UnaryConnective.Not formula) {
-        return formula.argument.accept(NotPropagationVisitor.this);
-      }
+    private Formula[] values(Formula[] operands, int polarity) {
+      var values = new Formula[operands.length];
+      for (int i = 0; i < operands.length; i++)
+        values[i] = value(operands[i])[polarity];
+      return values;
+    }
 
-      // (not a) -> (not a)
-      @Override
-      public Formula visit(Atom.Var formula) {
-        return new UnaryConnective.Not(formula.accept(NotPropagationVisitor.this));
-      }
+    // (not a) -> (not a)
+    @Override
+    public Formula[] visit(Atom.Var formula) {
+      var atom = factory.intern(formula);
+      return new Formula[] {atom, factory.not(atom)};
     }
 
-    NotPropagationVisitorInner inner = new NotPropagationVisitorInner();
+    // (not (not a)) -> a
+    @Override
+    public Formula[] visit(UnaryConnective.Not formula) {
+      var argument = value(formula.argument);
+      return new Formula[] {argument[1], argument[0]};
+    }
 
+    // (not (and a b)) -> (or (not a) (not b))
     @Override
-    public Formula visit(UnaryConnective.Not formula) {
-      return formula.argument.accept(inner);
+    public Formula[] visit(NaryConnective.And formula) {
+      return new Formula[] {
+          factory.and(values(formula.operands, 0)), factory.or(values(formula.operands, 1))};
+    }
+
+    // (not (or a b)) -> (and (not a) (not b))
+    @Override
+    public Formula[] visit(NaryConnective.Or formula) {
+      return new Formula[] {
+          factory.or(values(formula.operands, 0)), factory.and(values(formula.operands, 1))};
+    }
+
+    @Override
+    public Formula[] visit(BinaryConnective.If formula) {
+      var connective = factory.implies(value(formula.left)[0], value(formula.right)[0]);
+      return new Formula[] {connective, factory.not(connective)};
+    }
+
+    @Override
+    public Formula[] visit(BinaryConnective.Iff formula) {
+      var connective = factory.iff(value(formula.left)[0], value(formula.right)[0]);
+      return new Formula[] {connective, factory.not(connective)};
+    }
+
+    Formula rewrite(Formula formula) {
+      return apply(formula)[0];
     }
   }
 
+  // Expects a formula in negation normal form. A disjunction of operands in conjunctive normal form
+  // becomes the conjunction of every clause made of one clause of each operand.
   private static class OrOverAndDistributionVisitor extends NopVisitor {
-    private Formula visitInner(Formula left, BinaryConnective.And right) {
-      return new BinaryConnective.And(
-          new BinaryConnective.Or(left.accept(this), right.left.accept(this)),
-          new BinaryConnective.Or(left.accept(this), right.right.accept(this)));
+    OrOverAndDistributionVisitor(FormulaFactory factory) {
+      super(factory);
+    }
+
+    // The clauses of a formula in conjunctive normal form.
+    private static List<Formula> clauses(Formula formula) {
+      var clauses = new ArrayList<Formula>();
+      var stack = new ArrayDeque<Formula>();
+      stack.push(formula);
+      while (!stack.isEmpty()) {
+        var top = stack.pop();
+        if (top instanceof NaryConnective.And) {
+          var operands = ((NaryConnective)top).operands;
+          for (int i = operands.length - 1; i >= 0; i--)
+            stack.push(operands[i]);
+        } else
+          clauses.add(top);
+      }
+      return clauses;
+    }
+
+    private static void addLiterals(Formula clause, List<Formula> literals) {
+      if (clause instanceof NaryConnective.Or)
+        literals.addAll(List.of(((NaryConnective)clause).operands));
+      else
+        literals.add(clause);
     }
 
     @Override
-    public Formula visit(BinaryConnective.Or formula) {
-      if (formula.right instanceof BinaryConnective.And)
-        return visitInner(formula.left, (BinaryConnective.And)formula.right);
-      if (formula.left instanceof BinaryConnective.And)
-        return visitInner(formula.right, (BinaryConnective.And)formula.left);
+    public Formula visit(NaryConnective.Or formula) {
+      var values = values(formula.operands);
+      boolean flat = true;
+      for (var value : values)
+        flat &= !(value instanceof NaryConnective.And);
+      if (flat) {
+        var literals = new ArrayList<Formula>(values.length);
+        for (var value : values)
+          addLiterals(value, literals);
+        return factory.or(literals);
+      }
+
+      var operands = new ArrayList<List<Formula>>();
+      for (var value : values)
+        operands.add(clauses(value));
+      // Operands which are single clauses go first, so their literals lead every product.
+      operands.sort(Comparator.comparingInt(List::size));
+
+      // Products holding a literal and its complement are always true and are dropped, as are
+      // repeated literals and repeated products, since they would otherwise multiply.
+      Set<Set<Formula>> products = Set.of(Set.of());
+      Formula clash = null;
+      for (var operand : operands) {
+        var next = new LinkedHashSet<Set<Formula>>();
+        for (var product : products)
+          for (var clause : operand) {
+            var literals = new LinkedHashSet<>(product);
+            var complement = addToProduct(clause, literals);
+            if (complement == null)
+              next.add(literals);
+            else
+              clash = complement;
+          }
+        products = next;
+      }
+
+      if (products.isEmpty())
+        return factory.or(clash, complement(clash));
+      var clauses = new ArrayList<Formula>(products.size());
+      for (var literals : products)
+        clauses.add(factory.or(new ArrayList<>(literals)));
+      return factory.and(clauses);
+    }
+
+    private Formula complement(Formula literal) {
+      return literal instanceof UnaryConnective.Not
+          ? ((UnaryConnective.Not)literal).argument
+          : factory.not(literal);
+    }
+
+    // Adds the literals of a clause to a product, and returns one whose complement is already in
+    // the product, or null if there is none.
+    private Formula addToProduct(Formula clause, Set<Formula> product) {
+      var literals = clause instanceof NaryConnective.Or
+          ? ((NaryConnective)clause).operands
+          : new Formula[] {clause};
+      for (var literal : literals) {
+        if (product.contains(complement(literal)))
+          return literal;
+        product.add(literal);
+      }
+      return null;
+    }
+  }
+
+  // Names every subformula which is not a literal with an auxiliary variable, and defines the
+  // variable by a few clauses over the literals naming its operands. The result is equisatisfiable
+  // and linear in the size of the formula. When only one direction of a definition can matter, as
+  // determined by the polarity of the subformula, only that direction is emitted.
+  private static class DefinitionEncoder {
+    private static final int POSITIVE = 1;
+    private static final int NEGATIVE = 2;
+    private static final int BOTH = POSITIVE | NEGATIVE;
+
+    private final boolean polarityAware;
+    private final FormulaFactory factory;
+    private final Map<Formula, Atom.Var> names;
+    private final Map<Formula, Integer> defined;
+    private final List<Formula> clauses;
+    // Subformulas named, but not yet defined in the needed polarity, with the polarity.
+    private final ArrayDeque<Formula> undefined;
+    private final ArrayDeque<Integer> polarities;
+
+    DefinitionEncoder(boolean polarityAware) {
+      this.polarityAware = polarityAware;
+      this.factory = new FormulaFactory();
+      this.names = new IdentityHashMap<>();
+      this.defined = new IdentityHashMap<>();
+      this.clauses = new ArrayList<>();
+      this.undefined = new ArrayDeque<>();
+      this.polarities = new ArrayDeque<>();
+    }
+
+    private static int flip(int polarity) {
+      return (polarity & POSITIVE) << 1 | (polarity & NEGATIVE) >> 1;
+    }
+
+    private Formula negate(Formula literal) {
+      if (literal instanceof UnaryConnective.Not)
+        return ((UnaryConnective.Not)literal).argument;
+      return factory.not(literal);
+    }
+
+    // The operands of nested connectives of the same kind, from left to right.
+    private static List<Formula> operands(Formula formula, Class<? extends NaryConnective> kind) {
+      var operands = new ArrayList<Formula>();
+      var stack = new ArrayDeque<Formula>();
+      stack.push(formula);
+      while (!stack.isEmpty()) {
+        var top = stack.pop();
+        if (kind.isInstance(top)) {
+          var nested = ((NaryConnective)top).operands;
+          for (int i = nested.length - 1; i >= 0; i--)
+            stack.push(nested[i]);
+        } else
+          operands.add(top);
+      }
+      return operands;
+    }
+
+    private void clause(List<Formula> literals) {
+      clauses.add(factory.or(literals));
+    }
+
+    private void clause(Formula... literals) {
+      clauses.add(factory.or(literals));
+    }
+
+    // Returns a literal which implies the formula when the polarity is positive, and is implied by
+    // it when the polarity is negative. The definition is deferred, so that nesting does not
+    // recurse.
+    private Formula encode(Formula formula, int polarity) {
+      boolean negated = false;
+      while (formula instanceof UnaryConnective.Not) {
+        formula = ((UnaryConnective.Not)formula).argument;
+        polarity = flip(polarity);
+        negated = !negated;
+      }
+      if (formula instanceof Atom.Var)
+        return negated ? negate(formula) : formula;
+
+      var name = names.computeIfAbsent(
+          formula, (k) -> factory.auxiliary(String.valueOf(names.size())));
+      int needed = polarityAware ? polarity : BOTH;
+      int done = defined.getOrDefault(formula, 0);
+      if ((needed & ~done) != 0) {
+        defined.put(formula, done | needed);
+        undefined.push(formula);
+        polarities.push(needed & ~done);
+      }
+      return negated ? negate(name) : name;
+    }
+
+    private List<Formula> encodeAll(List<Formula> formulas, int polarity) {
+      var literals = new ArrayList<Formula>(formulas.size());
+      for (var formula : formulas)
+        literals.add(encode(formula, polarity));
+      return literals;
+    }
+
+    private void define(Formula formula, Formula name, int polarity) {
+      if (formula instanceof NaryConnective.And) {
+        var literals = encodeAll(operands(formula, NaryConnective.And.class), polarity);
+        if ((polarity & POSITIVE) != 0)
+          for (var literal : literals)
+            clause(negate(name), literal);
+        if ((polarity & NEGATIVE) != 0) {
+          var clause = new ArrayList<Formula>(List.of(name));
+          for (var literal : literals)
+            clause.add(negate(literal));
+          clause(clause);
+        }
+      } else if (formula instanceof NaryConnective.Or) {
+        var literals = encodeAll(operands(formula, NaryConnective.Or.class), polarity);
+        if ((polarity & POSITIVE) != 0) {
+          var clause = new ArrayList<Formula>(List.of(negate(name)));
+          clause.addAll(literals);
+          clause(clause);
+        }
+        if ((polarity & NEGATIVE) != 0)
+          for (var literal : literals)
+            clause(name, negate(literal));
+      } else if (formula instanceof BinaryConnective.If) {
+        var connective = (BinaryConnective)formula;
+        var left = encode(connective.left, flip(polarity));
+        var right = encode(connective.right, polarity);
+        if ((polarity & POSITIVE) != 0)
+          clause(negate(name), negate(left), right);
+        if ((polarity & NEGATIVE) != 0) {
+          clause(name, left);
+          clause(name, negate(right));
+        }
+      } else if (formula instanceof BinaryConnective.Iff) {
+        var connective = (BinaryConnective)formula;
+        var left = encode(connective.left, BOTH);
+        var right = encode(connective.right, BOTH);
+        if ((polarity & POSITIVE) != 0) {
+          clause(negate(name), negate(left), right);
+          clause(negate(name), left, negate(right));
+        }
+        if ((polarity & NEGATIVE) != 0) {
+          clause(name, left, right);
+          clause(name, negate(left), negate(right));
+        }
+      }
+    }
+
+    // Clauses of the formula are kept as they are, and only nested subformulas are named.
+    Formula encode(Formula formula) {
+      for (var conjunct : operands(formula, NaryConnective.And.class))
+        clause(encodeAll(operands(conjunct, NaryConnective.Or.class), POSITIVE));
+      while (!undefined.isEmpty()) {
+        var subformula = undefined.pop();
+        define(subformula, names.get(subformula), polarities.pop());
+      }
+      return factory.and(clauses);
+    }
+  }
+
+  private static boolean isLiteral(Formula formula) {
+    return formula instanceof Atom.Var
+        || formula instanceof UnaryConnective.Not
+            && ((UnaryConnective.Not)formula).argument instanceof Atom.Var;
+  }
+
+  private static boolean isClause(Formula formula) {
+    if (!(formula instanceof NaryConnective.Or))
+      return isLiteral(formula);
+    for (var operand : ((NaryConnective)formula).operands)
+      if (!isLiteral(operand))
+        return false;
+    return true;
+  }
+
+  // Encodes the cardinality and XOR constraints which are conjuncts of the formula into clauses, or
+  // keeps those over literals when they are propagated natively, and expands the others. Conjuncts
+  // which are already clauses are kept as they are.
+  private static Formula encodeConstraints(
+      Formula formula, SolverOptions.CardinalityEncoding encoding, boolean gaussianElimination) {
+    var conjuncts = DefinitionEncoder.operands(formula, NaryConnective.And.class);
+    boolean clauses = true;
+    for (var conjunct : conjuncts)
+      clauses &= isClause(conjunct);
+    if (clauses)
+      return formula;
+
+    var factory = new FormulaFactory();
+    var expansion = new ConstraintExpansionVisitor(factory);
+    var encoder = new CardinalityEncoder(factory, encoding);
+    var encoded = new ArrayList<Formula>(conjuncts.size());
+    for (var conjunct : conjuncts)
+      if (isClause(conjunct))
+        encoded.add(conjunct);
+      else if (conjunct instanceof Cardinality) {
+        var constraint = (Cardinality)conjunct;
+        var operands = new Formula[constraint.operands.length];
+        boolean literals = true;
+        for (int i = 0; i < operands.length; i++) {
+          operands[i] = expansion.apply(constraint.operands[i]);
+          literals &= isLiteral(operands[i]);
+        }
+        var expanded = factory.cardinality(constraint.atLeast, constraint.atMost, operands);
+        if (literals && encoding == SolverOptions.CardinalityEncoding.NATIVE)
+          encoded.add(expanded);
+        else
+          encoder.add(expanded);
+      } else if (conjunct instanceof NaryConnective.Xor) {
+        var constraint = (NaryConnective)conjunct;
+        var operands = new Formula[constraint.operands.length];
+        boolean literals = true;
+        for (int i = 0; i < operands.length; i++) {
+          operands[i] = expansion.apply(constraint.operands[i]);
+          literals &= isLiteral(operands[i]);
+        }
+        var expanded = (NaryConnective.Xor)factory.xor(operands);
+        if (literals && gaussianElimination)
+          encoded.add(expanded);
+        else
+          encoder.add(expanded);
+      } else
+        encoded.add(expansion.apply(conjunct));
+    encoded.addAll(encoder.clauses());
+    return factory.and(encoded);
+  }
+
+  // Converts a formula into conjunctive normal form with the given encoding. Auxiliary variables
+  // introduced by the encoding are hidden from the models of solvers created from the result.
+  public static Formula convert(Formula formula, SolverOptions.Encoding encoding) {
+    return convert(formula, encoding, SolverOptions.CardinalityEncoding.SEQUENTIAL_COUNTER);
+  }
+
+  // Cardinality constraints kept by the NATIVE encoding are conjuncts of the result, along with the
+  // clauses of the rest of the formula. XOR constraints are encoded into clauses.
+  public static Formula convert(
+      Formula formula,
+      SolverOptions.Encoding encoding,
+      SolverOptions.CardinalityEncoding cardinalityEncoding) {
+    return convert(formula, encoding, cardinalityEncoding, false);
+  }
+
+  // Converts a formula with the encodings of the options, keeping the XOR constraints over literals
+  // as conjuncts of the result too when they are propagated by Gaussian elimination.
+  public static Formula convert(Formula formula, SolverOptions options) {
+    return convert(
+        formula, options.encoding(), options.cardinalityEncoding(), options.gaussianElimination());
+  }
+
+  private static Formula convert(
+      Formula formula,
+      SolverOptions.Encoding encoding,
+      SolverOptions.CardinalityEncoding cardinalityEncoding,
+      boolean gaussianElimination) {
+    formula = encodeConstraints(formula, cardinalityEncoding, gaussianElimination);
+    var constraints = new ArrayList<Formula>();
+    var rest = new ArrayList<Formula>();
+    for (var conjunct : DefinitionEncoder.operands(formula, NaryConnective.And.class))
+      if (conjunct instanceof Cardinality || conjunct instanceof NaryConnective.Xor)
+        constraints.add(conjunct);
       else
-        return super.visit(formula);
+        rest.add(conjunct);
+    if (constraints.isEmpty())
+      return encode(formula, encoding);
+    var factory = new FormulaFactory();
+    if (!rest.isEmpty()) {
+      var encoded = encode(factory.and(rest), encoding);
+      constraints.addAll(DefinitionEncoder.operands(encoded, NaryConnective.And.class));
     }
+    return factory.and(constraints);
+  }
+
+  private static Formula encode(Formula formula, SolverOptions.Encoding encoding) {
+    switch (encoding) {
+      case TSEITIN:
+        return new DefinitionEncoder(false).encode(formula);
+      case PLAISTED_GREENBAUM:
+        return new DefinitionEncoder(true).encode(formula);
+      case DISTRIBUTION:
+        formula = distribute(formula);
+        break;
+      default:
+        break;
+    }
+    Preconditions.checkArgument(
+        Formulas.isCnf(formula),
+        "Provided formula is not in conjunctive normal form.\n  Formula: %s",
+        Formulas.toString(formula));
+    return formula;
   }
 
   public static Formula convert(Formula formula) {
-    formula = formula.accept(new BiconditionalEliminationVisitor());
-    formula = formula.accept(new ImplicationEliminationVisitor());
-    formula = formula.accept(new NotPropagationVisitor());
-    formula = formula.accept(new OrOverAndDistributionVisitor());
+    return distribute(encodeConstraints(
+        formula, SolverOptions.CardinalityEncoding.SEQUENTIAL_COUNTER, false));
+  }
+
+  private static Formula distribute(Formula formula) {
+    var factory = new FormulaFactory();
+    formula = new BiconditionalEliminationVisitor(factory).apply(formula);
+    formula = new ImplicationEliminationVisitor(factory).apply(formula);
+    formula = new NotPropagationVisitor(factory).rewrite(formula);
+    formula = new OrOverAndDistributionVisitor(factory).apply(formula);
     return formula;
   }
 }
@@ -2,7 +2,7 @@ package dimple.formula;
 
 import java.util.Map;
 
-class FormulaEvalVisitor implements FormulaVisitor<Boolean> {
+class FormulaEvalVisitor extends PostOrderVisitor<Boolean> {
   final Map<String, Boolean> assignment;
 
   FormulaEvalVisitor(Map<String, Boolean> assignment) {
@@ -14,23 +14,43 @@ class FormulaEvalVisitor implements FormulaVisitor<Boolean> {
   }
 
   public Boolean visit(UnaryConnective.Not connective) {
-    return !connective.argument.accept(this);
+    return !value(connective.argument);
   }
 
-  public Boolean visit(BinaryConnective.And connective) {
-    return connective.left.accept(this) && connective.right.accept(this);
+  public Boolean visit(NaryConnective.And connective) {
+    for (var operand : connective.operands)
+      if (!value(operand))
+        return false;
+    return true;
   }
 
-  public Boolean visit(BinaryConnective.Or connective) {
-    return connective.left.accept(this) || connective.right.accept(this);
+  public Boolean visit(NaryConnective.Or connective) {
+    for (var operand : connective.operands)
+      if (value(operand))
+        return true;
+    return false;
+  }
+
+  public Boolean visit(NaryConnective.Xor connective) {
+    boolean odd = false;
+    for (var operand : connective.operands)
+      odd ^= value(operand);
+    return odd;
   }
 
   public Boolean visit(BinaryConnective.If connective) {
-    return !connective.left.accept(this) || connective.right.accept(this);
+    return !value(connective.left) || value(connective.right);
   }
 
   public Boolean visit(BinaryConnective.Iff connective) {
-    return (connective.left.accept(this) || !connective.right.accept(this))
-      && (!connective.left.accept(this) || connective.right.accept(this));
+    return value(connective.left) == value(connective.right);
+  }
+
+  public Boolean visit(Cardinality constraint) {
+    int count = 0;
+    for (var operand : constraint.operands)
+      if (value(operand))
+        count++;
+    return constraint.atLeast <= count && count <= constraint.atMost;
   }
 }
@@ -0,0 +1,226 @@
+package dimple.formula;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Creates formulas with hash consing: a formula structurally equal to one created before is that
+// very same node. Formulas are then directed acyclic graphs in which repeated subformulas are
+// stored once, and visitors which remember the nodes they visited do work linear in the amount of
+// distinct subformulas. Since the children of a node are shared too, nodes are compared by the
+// identity of their children, in time linear in their amount.
+public final class FormulaFactory {
+  private static final int VAR = 0;
+  private static final int AUXILIARY = 1;
+  private static final int NOT = 2;
+  private static final int AND = 3;
+  private static final int OR = 4;
+  private static final int IF = 5;
+  private static final int IFF = 6;
+  private static final int CARDINALITY = 7;
+  private static final int XOR = 8;
+
+  private static final Formula[] NO_OPERANDS = new Formula[0];
+
+  private static final class Key {
+    private final int kind;
+    private final String name;
+    private final Formula[] operands;
+
+    Key(int kind, String name, Formula[] operands) {
+      this.kind = kind;
+      this.name = name;
+      this.operands = operands;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key))
+        return false;
+      var key = (Key)other;
+      if (kind != key.kind || !Objects.equals(name, key.name)
+          || operands.length != key.operands.length)
+        return false;
+      for (int i = 0; i < operands.length; i++)
+        if (operands[i] != key.operands[i])
+          return false;
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = kind * 31 + Objects.hashCode(name);
+      for (var operand : operands)
+        hash = hash * 31 + System.identityHashCode(operand);
+      return hash;
+    }
+  }
+
+  private final Map<Key, Formula> nodes = new HashMap<>();
+  private final InterningVisitor interning = new InterningVisitor();
+
+  @SuppressWarnings("unchecked")
+  private <T extends Formula> T node(int kind, String name, Formula... operands) {
+    var node = nodes.get(new Key(kind, name, operands));
+    if (node == null) {
+      // The operands may be an array of the caller.
+      operands = operands.clone();
+      switch (kind) {
+        case VAR:
+          node = new Atom.Var(name);
+          break;
+        case AUXILIARY:
+          node = new Atom.Var(name, true);
+          break;
+        case NOT:
+          node = new UnaryConnective.Not(operands[0]);
+          break;
+        case AND:
+          node = new NaryConnective.And(operands);
+          break;
+        case OR:
+          node = new NaryConnective.Or(operands);
+          break;
+        case IF:
+          node = new BinaryConnective.If(operands[0], operands[1]);
+          break;
+        case IFF:
+          node = new BinaryConnective.Iff(operands[0], operands[1]);
+          break;
+        case XOR:
+          node = new NaryConnective.Xor(operands);
+          break;
+        default:
+          // The bounds are kept in the name, as "atLeast:atMost".
+          int colon = name.indexOf(':');
+          node = new Cardinality(
+              Integer.parseInt(name, 0, colon, 10),
+              Integer.parseInt(name, colon + 1, name.length(), 10),
+              operands);
+          break;
+      }
+      nodes.put(new Key(kind, name, operands), node);
+      interning.remember(node, node);
+    }
+    return (T)node;
+  }
+
+  public Atom.Var var(String name) {
+    return node(VAR, name, NO_OPERANDS);
+  }
+
+  Atom.Var auxiliary(String name) {
+    return node(AUXILIARY, name, NO_OPERANDS);
+  }
+
+  public UnaryConnective.Not not(Formula argument) {
+    return node(NOT, null, argument);
+  }
+
+  // The conjunction of a single formula is the formula itself.
+  public Formula and(Formula... operands) {
+    return operands.length == 1 ? operands[0] : node(AND, null, operands);
+  }
+
+  public Formula and(List<Formula> operands) {
+    return and(operands.toArray(NO_OPERANDS));
+  }
+
+  // The disjunction of a single formula is the formula itself.
+  public Formula or(Formula... operands) {
+    return operands.length == 1 ? operands[0] : node(OR, null, operands);
+  }
+
+  public Formula or(List<Formula> operands) {
+    return or(operands.toArray(NO_OPERANDS));
+  }
+
+  // The exclusive disjunction of a single formula is the formula itself.
+  public Formula xor(Formula... operands) {
+    return operands.length == 1 ? operands[0] : node(XOR, null, operands);
+  }
+
+  public BinaryConnective.If implies(Formula left, Formula right) {
+    return node(IF, null, left, right);
+  }
+
+  public BinaryConnective.Iff iff(Formula left, Formula right) {
+    return node(IFF, null, left, right);
+  }
+
+  Cardinality cardinality(int atLeast, int atMost, Formula... operands) {
+    return node(CARDINALITY, atLeast + ":" + atMost, operands);
+  }
+
+  public Cardinality atMost(int bound, Formula... operands) {
+    return cardinality(0, bound, operands);
+  }
+
+  public Cardinality atLeast(int bound, Formula... operands) {
+    return cardinality(bound, Math.max(bound, operands.length), operands);
+  }
+
+  public Cardinality exactly(int bound, Formula... operands) {
+    return cardinality(bound, bound, operands);
+  }
+
+  // The amount of distinct nodes created.
+  public int size() {
+    return nodes.size();
+  }
+
+  // Returns the shared node structurally equal to a formula which may have been created elsewhere.
+  public Formula intern(Formula formula) {
+    return interning.apply(formula);
+  }
+
+  private class InterningVisitor extends PostOrderVisitor<Formula> {
+    private Formula[] values(Formula[] operands) {
+      var values = new Formula[operands.length];
+      for (int i = 0; i < operands.length; i++)
+        values[i] = value(operands[i]);
+      return values;
+    }
+
+    @Override
+    public Formula visit(Atom.Var atom) {
+      return atom.auxiliary ? auxiliary(atom.value) : var(atom.value);
+    }
+
+    @Override
+    public Formula visit(UnaryConnective.Not connective) {
+      return not(value(connective.argument));
+    }
+
+    @Override
+    public Formula visit(NaryConnective.And connective) {
+      return and(values(connective.operands));
+    }
+
+    @Override
+    public Formula visit(NaryConnective.Or connective) {
+      return or(values(connective.operands));
+    }
+
+    @Override
+    public Formula visit(NaryConnective.Xor connective) {
+      return xor(values(connective.operands));
+    }
+
+    @Override
+    public Formula visit(BinaryConnective.If connective) {
+      return implies(value(connective.left), value(connective.right));
+    }
+
+    @Override
+    public Formula visit(BinaryConnective.Iff connective) {
+      return iff(value(connective.left), value(connective.right));
+    }
+
+    @Override
+    public Formula visit(Cardinality constraint) {
+      return cardinality(constraint.atLeast, constraint.atMost, values(constraint.operands));
+    }
+  }
+}
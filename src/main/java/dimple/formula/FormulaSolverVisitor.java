@@ -1,91 +1,182 @@
 package dimple.formula;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableBiMap;
-import java.util.Collection;
+import dimple.ClauseDatabase;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 
+// Adds the clauses of a formula in conjunctive normal form to a clause database. Conjunctions and
+// disjunctions push their operands on a stack rather than visiting them, so nesting costs no call
+// stack. Cardinality and XOR constraints over literals among the conjunctions are added as
+// constraints of their own.
 public class FormulaSolverVisitor extends FormulaThrowingVisitor<Void> {
-  private static class ClauseVisitor extends FormulaThrowingVisitor<Set<Integer>> {
-    Map<String, Integer> variables;
+  private class ClauseVisitor extends FormulaThrowingVisitor<Void> {
+    private final Set<Integer> literals = new HashSet<>();
+    private final ArrayDeque<Formula> pending = new ArrayDeque<>();
 
-    ClauseVisitor(Map<String, Integer> variables) {
+    ClauseVisitor() {
       super("Formula not in CNF");
-      this.variables = variables;
     }
 
-    @Override
-    public Set<Integer> visit(Atom.Var formula) {
-      String variable = formula.value;
-      variables.computeIfAbsent(variable, (k) -> {
-        return variables.size();
+    // Auxiliary variables are numbered along with named ones, but are left out of the names.
+    private int variable(Atom.Var atom) {
+      var map = atom.auxiliary ? auxiliaries : variables;
+      return map.computeIfAbsent(atom.value, (k) -> {
+        return variables.size() + auxiliaries.size();
       });
+    }
 
-      return Set.of(variables.get(variable) << 1);
+    // The literal of a variable or of its negation.
+    int literal(Formula formula) {
+      if (formula instanceof UnaryConnective.Not) {
+        var argument = ((UnaryConnective.Not)formula).argument;
+        Preconditions.checkState(argument instanceof Atom.Var, message);
+        return variable((Atom.Var)argument) << 1 | 1;
+      }
+      Preconditions.checkState(formula instanceof Atom.Var, message);
+      return variable((Atom.Var)formula) << 1;
     }
 
     @Override
-    public Set<Integer> visit(UnaryConnective.Not formula) {
-      Atom.Var atom = (Atom.Var)formula.argument;
-
-      String variable = atom.value;
-      variables.computeIfAbsent(variable, (k) -> {
-        return variables.size();
-      });
+    public Void visit(Atom.Var formula) {
+      literals.add(variable(formula) << 1);
+      return null;
+    }
 
-      return Set.of((variables.get(variable) << 1) | 1);
+    @Override
+    public Void visit(UnaryConnective.Not formula) {
+      Preconditions.checkState(formula.argument instanceof Atom.Var, message);
+      literals.add((variable((Atom.Var)formula.argument) << 1) | 1);
+      return null;
     }
 
     @Override
-    public Set<Integer> visit(BinaryConnective.Or formula) {
-      var result = new HashSet<Integer>();
-      result.addAll(formula.left.accept(this));
-      result.addAll(formula.right.accept(this));
-      return result;
+    public Void visit(NaryConnective.Or formula) {
+      for (int i = formula.operands.length - 1; i >= 0; i--)
+        pending.push(formula.operands[i]);
+      return null;
+    }
+
+    int[] literals(Formula clause) {
+      pending.push(clause);
+      while (!pending.isEmpty())
+        pending.pop().accept(this);
+      return literals.stream().mapToInt(Integer::intValue).toArray();
     }
   }
 
   private Map<String, Integer> variables;
-  private Collection<Set<Integer>> clauses;
+  private Map<String, Integer> auxiliaries;
+  private ClauseDatabase clauses;
+  // Nodes of the formula already visited. A subformula shared by several conjunctions is a
+  // single node, and its clauses are added once.
+  private Set<Formula> visited;
+  private ArrayDeque<Formula> pending;
 
   FormulaSolverVisitor() {
     super("Formula not in CNF");
     this.variables = new HashMap<>();
-    this.clauses = new HashSet<>();
+    this.auxiliaries = new HashMap<>();
+    this.clauses = new ClauseDatabase();
+    this.visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    this.pending = new ArrayDeque<>();
+  }
+
+  private void addClause(Formula formula) {
+    if (visited.add(formula))
+      clauses.add(new ClauseVisitor().literals(formula));
   }
 
+  // The named variables. Auxiliary variables only occur in the clauses.
   public ImmutableBiMap<String, Integer> variables() {
     return ImmutableBiMap.copyOf(variables);
   }
 
-  public Collection<Set<Integer>> clauses() {
+  public ClauseDatabase clauses() {
     return clauses;
   }
 
+  void add(Formula formula) {
+    pending.push(formula);
+    while (!pending.isEmpty())
+      pending.pop().accept(this);
+  }
+
+  // Numbers the named variables of a formula which are not in any clause added, such as those the
+  // conversion to conjunctive normal form only found in clauses that are always true.
+  void declare(Formula formula) {
+    new PostOrderVisitor<Void>() {
+      @Override
+      public Void visit(Atom.Var atom) {
+        if (!atom.auxiliary)
+          variables.computeIfAbsent(atom.value, (k) -> variables.size() + auxiliaries.size());
+        return null;
+      }
+    }.apply(formula);
+  }
+
   @Override
   public Void visit(Atom.Var formula) {
-    clauses.add(formula.accept(new ClauseVisitor(this.variables)));
+    addClause(formula);
     return null;
   }
 
   @Override
   public Void visit(UnaryConnective.Not formula) {
-    clauses.add(formula.accept(new ClauseVisitor(this.variables)));
+    addClause(formula);
+    return null;
+  }
+
+  @Override
+  public Void visit(NaryConnective.And formula) {
+    if (visited.add(formula))
+      for (int i = formula.operands.length - 1; i >= 0; i--)
+        pending.push(formula.operands[i]);
     return null;
   }
 
   @Override
-  public Void visit(BinaryConnective.And formula) {
-    formula.left.accept(this);
-    formula.right.accept(this);
+  public Void visit(NaryConnective.Or formula) {
+    addClause(formula);
+    return null;
+  }
+
+  // At least k of n literals is at most n - k of their negations.
+  @Override
+  public Void visit(Cardinality formula) {
+    if (!visited.add(formula))
+      return null;
+    var visitor = new ClauseVisitor();
+    var literals = new int[formula.operands.length];
+    for (int i = 0; i < literals.length; i++)
+      literals[i] = visitor.literal(formula.operands[i]);
+    if (formula.atMost < literals.length)
+      clauses.addAtMost(formula.atMost, literals);
+    if (formula.atLeast > literals.length)
+      clauses.add();
+    else if (formula.atLeast > 0) {
+      for (int i = 0; i < literals.length; i++)
+        literals[i] ^= 1;
+      clauses.addAtMost(literals.length - formula.atLeast, literals);
+    }
     return null;
   }
 
   @Override
-  public Void visit(BinaryConnective.Or formula) {
-    clauses.add(formula.accept(new ClauseVisitor(this.variables)));
+  public Void visit(NaryConnective.Xor formula) {
+    if (!visited.add(formula))
+      return null;
+    var visitor = new ClauseVisitor();
+    var literals = new int[formula.operands.length];
+    for (int i = 0; i < literals.length; i++)
+      literals[i] = visitor.literal(formula.operands[i]);
+    clauses.addXor(literals);
     return null;
   }
 }
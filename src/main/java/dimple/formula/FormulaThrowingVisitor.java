@@ -22,13 +22,19 @@ public class FormulaThrowingVisitor<T> implements FormulaVisitor<T> {
   }
 
   @Override
-  public T visit(BinaryConnective.And connective) {
+  public T visit(NaryConnective.And connective) {
     Preconditions.checkState(false, message);
     return null;
   }
 
   @Override
-  public T visit(BinaryConnective.Or connective) {
+  public T visit(NaryConnective.Or connective) {
+    Preconditions.checkState(false, message);
+    return null;
+  }
+
+  @Override
+  public T visit(NaryConnective.Xor connective) {
     Preconditions.checkState(false, message);
     return null;
   }
@@ -44,4 +50,10 @@ public class FormulaThrowingVisitor<T> implements FormulaVisitor<T> {
     Preconditions.checkState(false, message);
     return null;
   }
+
+  @Override
+  public T visit(Cardinality constraint) {
+    Preconditions.checkState(false, message);
+    return null;
+  }
 }
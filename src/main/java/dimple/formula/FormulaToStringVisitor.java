@@ -1,29 +1,76 @@
 package dimple.formula;
 
-class FormulaToStringVisitor implements FormulaVisitor<String> {
-  public String visit(Atom.Var atom) {
-    return atom.value;
+import java.util.ArrayDeque;
+
+// Prints a formula from left to right, keeping what is left to print on a stack: formulas, and
+// the closing parentheses of the connectives they are operands of.
+class FormulaToStringVisitor implements FormulaVisitor<Void> {
+  private final StringBuilder builder = new StringBuilder();
+  private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+  private void open(String name, Formula... operands) {
+    builder.append('(').append(name);
+    pending.push(")");
+    for (int i = operands.length - 1; i >= 0; i--) {
+      pending.push(operands[i]);
+      pending.push(" ");
+    }
+  }
+
+  public Void visit(Atom.Var atom) {
+    builder.append(atom.value);
+    return null;
+  }
+
+  public Void visit(UnaryConnective.Not connective) {
+    open("not", connective.argument);
+    return null;
+  }
+
+  public Void visit(NaryConnective.And connective) {
+    open("and", connective.operands);
+    return null;
+  }
+
+  public Void visit(NaryConnective.Or connective) {
+    open("or", connective.operands);
+    return null;
   }
 
-  public String visit(UnaryConnective.Not connective) {
-    return String.format("(not %s)", connective.argument.accept(this));
+  public Void visit(NaryConnective.Xor connective) {
+    open("xor", connective.operands);
+    return null;
   }
 
-  public String visit(BinaryConnective.And connective) {
-    return String.format("(and %s %s)",
-        connective.left.accept(this), connective.right.accept(this));
+  public Void visit(BinaryConnective.If connective) {
+    open("if", connective.left, connective.right);
+    return null;
   }
 
-  public String visit(BinaryConnective.Or connective) {
-    return String.format("(or %s %s)", connective.left.accept(this), connective.right.accept(this));
+  public Void visit(BinaryConnective.Iff connective) {
+    open("iff", connective.left, connective.right);
+    return null;
   }
 
-  public String visit(BinaryConnective.If connective) {
-    return String.format("(if %s %s)", connective.left.accept(this), connective.right.accept(this));
+  public Void visit(Cardinality constraint) {
+    if (constraint.atLeast == constraint.atMost)
+      open("exactly " + constraint.atLeast, constraint.operands);
+    else if (constraint.atLeast == 0)
+      open("atmost " + constraint.atMost, constraint.operands);
+    else
+      open("atleast " + constraint.atLeast, constraint.operands);
+    return null;
   }
 
-  public String visit(BinaryConnective.Iff connective) {
-    return String.format("(iff %s %s)",
-        connective.left.accept(this), connective.right.accept(this));
+  String apply(Formula formula) {
+    pending.push(formula);
+    while (!pending.isEmpty()) {
+      var next = pending.pop();
+      if (next instanceof Formula)
+        ((Formula)next).accept(this);
+      else
+        builder.append((String)next);
+    }
+    return builder.toString();
   }
 }
@@ -9,11 +9,15 @@ interface FormulaVisitor<T> {
     return null;
   }
 
-  default T visit(BinaryConnective.And connective) {
+  default T visit(NaryConnective.And connective) {
     return null;
   }
 
-  default T visit(BinaryConnective.Or connective) {
+  default T visit(NaryConnective.Or connective) {
+    return null;
+  }
+
+  default T visit(NaryConnective.Xor connective) {
     return null;
   }
 
@@ -24,4 +28,8 @@ interface FormulaVisitor<T> {
   default T visit(BinaryConnective.Iff connective) {
     return null;
   }
+
+  default T visit(Cardinality constraint) {
+    return null;
+  }
 }
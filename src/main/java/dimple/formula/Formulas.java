@@ -1,29 +1,42 @@
 package dimple.formula;
 
-import com.google.common.base.Preconditions;
 import dimple.Solver;
+import dimple.SolverOptions;
 import java.util.Map;
 
 public class Formulas {
   public static boolean eval(Formula formula, Map<String, Boolean> assignment) {
-    return formula.accept(new FormulaEvalVisitor(assignment));
+    return new FormulaEvalVisitor(assignment).apply(formula);
   }
 
   public static String toString(Formula formula) {
-    return formula.accept(new FormulaToStringVisitor());
+    return new FormulaToStringVisitor().apply(formula);
   }
 
   public static boolean isCnf(Formula formula) {
-    return formula.accept(new IsCnfVisitor());
+    return new IsCnfVisitor().apply(formula) != IsCnfVisitor.NONE;
   }
 
   public static Solver createSolver(Formula formula) {
-    Preconditions.checkArgument(
-        isCnf(formula),
-        "Provided formula is not in conjunctive normal form.\n  Formula: %s",
-        toString(formula));
+    return createSolver(formula, SolverOptions.defaults());
+  }
+
+  private static FormulaSolverVisitor visitClauses(Formula formula, SolverOptions options) {
     var visitor = new FormulaSolverVisitor();
-    formula.accept(visitor);
-    return new Solver(visitor.variables(), visitor.clauses());
+    visitor.add(CnfConverter.convert(formula, options));
+    visitor.declare(formula);
+    return visitor;
+  }
+
+  // Formulas not in conjunctive normal form are converted with the encoding of the options.
+  public static Solver createSolver(Formula formula, SolverOptions options) {
+    var visitor = visitClauses(formula, options);
+    return new Solver(visitor.variables(), visitor.clauses(), options);
+  }
+
+  // Adds the clauses of a formula to a solver, keeping everything the solver learned so far.
+  public static void addClauses(Solver solver, Formula formula) {
+    var visitor = visitClauses(formula, solver.options());
+    solver.addClauses(visitor.variables(), visitor.clauses());
   }
 }
@@ -1,40 +1,50 @@
 package dimple.formula;
 
-class IsCnfVisitor implements FormulaVisitor<Boolean> {
-  final boolean encounteredOr;
+// Finds the most general normal form each subformula is in: a literal, a clause, or a
+// conjunction of clauses.
+class IsCnfVisitor extends PostOrderVisitor<Integer> {
+  static final int LITERAL = 0;
+  static final int CLAUSE = 1;
+  static final int CNF = 2;
+  static final int NONE = 3;
 
-  IsCnfVisitor() {
-    this(false);
+  // The most general form of any operand.
+  private int widest(Formula[] operands) {
+    int form = LITERAL;
+    for (var operand : operands)
+      form = Math.max(form, value(operand));
+    return form;
   }
 
-  private IsCnfVisitor(boolean encounteredOr) {
-    this.encounteredOr = encounteredOr;
+  public Integer visit(Atom.Var atom) {
+    return LITERAL;
   }
 
-  public Boolean visit(Atom.Var atom) {
-    return true;
+  public Integer visit(UnaryConnective.Not connective) {
+    return connective.argument instanceof Atom.Var ? LITERAL : NONE;
   }
 
-  public Boolean visit(UnaryConnective.Not connective) {
-    return connective.argument.accept(this);
+  public Integer visit(NaryConnective.And connective) {
+    return widest(connective.operands) <= CNF ? CNF : NONE;
   }
 
-  public Boolean visit(BinaryConnective.And connective) {
-    if (encounteredOr)
-      return false;
-    return connective.left.accept(this) && connective.right.accept(this);
+  public Integer visit(NaryConnective.Or connective) {
+    return widest(connective.operands) <= CLAUSE ? CLAUSE : NONE;
   }
 
-  public Boolean visit(BinaryConnective.Or connective) {
-    return connective.left.accept(new IsCnfVisitor(true))
-      && connective.right.accept(new IsCnfVisitor(true));
+  public Integer visit(NaryConnective.Xor connective) {
+    return NONE; // Needs to be encoded into clauses first
   }
 
-  public Boolean visit(BinaryConnective.If connective) {
-    return false; // Prepositional logic is not part of CNF
+  public Integer visit(BinaryConnective.If connective) {
+    return NONE; // Prepositional logic is not part of CNF
   }
 
-  public Boolean visit(BinaryConnective.Iff connective) {
-    return false; // Prepositional logic is not part of CNF
+  public Integer visit(BinaryConnective.Iff connective) {
+    return NONE; // Prepositional logic is not part of CNF
+  }
+
+  public Integer visit(Cardinality constraint) {
+    return NONE; // Needs to be encoded into clauses first
   }
 }
@@ -0,0 +1,48 @@
+package dimple.formula;
+
+import com.google.common.base.Preconditions;
+
+// Connectives of any amount of operands, which are kept in an array. A chain of conjunctions or
+// disjunctions is then a single node rather than a deep tree of binary ones.
+public abstract class NaryConnective implements Formula {
+  final Formula[] operands;
+
+  NaryConnective(Formula[] operands) {
+    Preconditions.checkArgument(operands.length >= 2, "Expected at least two operands");
+    this.operands = operands;
+  }
+
+  public static class And extends NaryConnective {
+    public And(Formula... operands) {
+      super(operands);
+    }
+
+    @Override
+    public <T> T accept(FormulaVisitor<T> visitor) {
+      return visitor.visit(this);
+    }
+  }
+
+  public static class Or extends NaryConnective {
+    public Or(Formula... operands) {
+      super(operands);
+    }
+
+    @Override
+    public <T> T accept(FormulaVisitor<T> visitor) {
+      return visitor.visit(this);
+    }
+  }
+
+  // Holds when an odd amount of the operands is true.
+  public static class Xor extends NaryConnective {
+    public Xor(Formula... operands) {
+      super(operands);
+    }
+
+    @Override
+    public <T> T accept(FormulaVisitor<T> visitor) {
+      return visitor.visit(this);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package dimple.formula;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// A visitor which visits the operands of a node before the node itself, and finds their values
+// with value() rather than by visiting them again. Nodes still to be visited are kept on a stack
+// of its own instead of the call stack, so formulas may be as deep as they like, and every distinct
+// node is visited once, however many times it is shared. Values are remembered between calls to
+// apply().
+abstract class PostOrderVisitor<T> implements FormulaVisitor<T> {
+  private final Map<Formula, T> values = new IdentityHashMap<>();
+
+  // The value of an operand of the node being visited.
+  T value(Formula formula) {
+    return values.get(formula);
+  }
+
+  // Gives a node a value without visiting it.
+  void remember(Formula formula, T value) {
+    values.put(formula, value);
+  }
+
+  private boolean push(Formula operand, ArrayDeque<Formula> stack) {
+    if (values.containsKey(operand))
+      return true;
+    stack.push(operand);
+    return false;
+  }
+
+  // Pushes the operands without a value, last one first. Returns whether there were none.
+  private boolean pushOperands(Formula[] operands, ArrayDeque<Formula> stack) {
+    boolean ready = true;
+    for (int i = operands.length - 1; i >= 0; i--)
+      ready &= push(operands[i], stack);
+    return ready;
+  }
+
+  private boolean pushOperands(Formula formula, ArrayDeque<Formula> stack) {
+    if (formula instanceof NaryConnective)
+      return pushOperands(((NaryConnective)formula).operands, stack);
+    if (formula instanceof Cardinality)
+      return pushOperands(((Cardinality)formula).operands, stack);
+    if (formula instanceof BinaryConnective) {
+      var connective = (BinaryConnective)formula;
+      return push(connective.right, stack) & push(connective.left, stack);
+    }
+    if (formula instanceof UnaryConnective)
+      return push(((UnaryConnective)formula).argument, stack);
+    return true;
+  }
+
+  T apply(Formula formula) {
+    var stack = new ArrayDeque<Formula>();
+    stack.push(formula);
+    while (!stack.isEmpty()) {
+      var top = stack.peek();
+      if (values.containsKey(top))
+        stack.pop();
+      else if (pushOperands(top, stack)) {
+        stack.pop();
+        values.put(top, top.accept(this));
+      }
+    }
+    return values.get(formula);
+  }
+}
@@ -1,34 +1,45 @@
 package dimple.reduce;
 
 import com.google.common.graph.Graph;
-import dimple.formula.Formula;
-import dimple.sexp.Sexpressions;
+import dimple.ClauseSink;
+import dimple.Literals;
+import dimple.Model;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class CliqueReduction<T> implements Reduction<CliqueReduction.Clique<T>> {
   @Override
-  public Formula reduce(CliqueReduction.Clique<T> clique) {
-    var builder = new CliqueSexpressionBuilder(clique);
+  public void reduce(CliqueReduction.Clique<T> clique, ClauseSink sink) {
+    var writer = new CliqueClauseWriter(clique, sink);
 
-    builder.writePrefix();
-    builder.writeRthVertex();
-    builder.writeMutualExclusion();
-    builder.writeEdges();
-    builder.writeSuffix();
-
-    return Sexpressions.compile(builder.get());
+    writer.writeRthVertex();
+    writer.writeMutualExclusion();
+    writer.writeEdges();
   }
 
   public static Set<Integer> decodeSolution(Map<String, Boolean> solution) {
     return solution.keySet().stream()
         .filter((k) -> solution.get(k))
-        .map((k) -> k.split(",")[0].substring(1))
-        .map(Integer::valueOf)
+        .map(CliqueReduction::vertexOf)
         .collect(Collectors.toSet());
   }
 
+  public static Set<Integer> decodeSolution(Model solution) {
+    var clique = new HashSet<Integer>();
+    for (int v = solution.nextTrue(0); v != -1; v = solution.nextTrue(v + 1))
+      clique.add(vertexOf(solution.name(v)));
+    return clique;
+  }
+
+  // Variables are named Vi,r for the vertex i being the rth vertex of the clique.
+  private static int vertexOf(String variable) {
+    return Integer.parseInt(variable, 1, variable.indexOf(','), 10);
+  }
+
   public static class Clique<U> {
     public final int size;
     public final Graph<U> graph;
@@ -39,38 +50,44 @@ public class CliqueReduction<T> implements Reduction<CliqueReduction.Clique<T>>
     }
   }
 
-  private class CliqueSexpressionBuilder {
-    private final StringBuilder stringBuilder = new StringBuilder();
+  private class CliqueClauseWriter {
+    private final ClauseSink sink;
     private final Clique<T> clique;
+    // The variables Vi,r of each vertex i, interned once.
+    private final Map<T, int[]> variables;
 
-    CliqueSexpressionBuilder(Clique<T> clique) {
+    CliqueClauseWriter(Clique<T> clique, ClauseSink sink) {
+      this.sink = sink;
       this.clique = clique;
-    }
-
-    public void writePrefix() {
-      writeLine("(and");
+      this.variables = new HashMap<>();
+      for (var i : clique.graph.nodes())
+        variables.put(i, new int[clique.size]);
+      for (int r = 0; r < clique.size; r++)
+        for (var i : clique.graph.nodes())
+          variables.get(i)[r] = sink.variable("V" + i + "," + r);
     }
 
     public void writeRthVertex() {
-      writeLine("  ; For each r, 0 <= r < size: Vi,r is the Rth vertex in the clique");
-      for (int n = 0; n < clique.size; n++) {
-        final int r = n;
-        writeLine("  (or%s)", clique.graph.nodes().stream()
-            .reduce("", (s, i) -> s + String.format(" V%s,%d", i, r), (s, t) -> s + " " + t));
+      sink.comment("For each r, 0 <= r < size: Vi,r is the Rth vertex in the clique");
+      for (int r = 0; r < clique.size; r++) {
+        final int s = r;
+        sink.addClause(clique.graph.nodes().stream()
+            .mapToInt((i) -> literal(i, s, false))
+            .toArray());
       }
     }
 
     public void writeMutualExclusion() {
-      writeLine("  ; No vertex is both the Rth and Sth vertex in the clique");
+      sink.comment("No vertex is more than one of the vertices in the clique");
       for (var i : clique.graph.nodes())
-        for (int s = 0; s < clique.size; s++)
-          for (int r = 0; r < s; r++)
-            writeLine("  (or (not V%s,%d) (not V%s,%d))", i, r, i, s);
+        sink.addAtMost(1, IntStream.range(0, clique.size)
+            .map((r) -> literal(i, r, false))
+            .toArray());
     }
 
     public void writeEdges() {
-      writeLine("  ; If there is not edge from Vi to Vj,");
-      writeLine("  ; then Vi and Vj cannot both be in the clique");
+      sink.comment("If there is not edge from Vi to Vj,");
+      sink.comment("then Vi and Vj cannot both be in the clique");
       for (int r = 0; r < clique.size; r++)
         for (int s = 0; s < clique.size; s++)
           if (r == s)
@@ -79,23 +96,11 @@ public class CliqueReduction<T> implements Reduction<CliqueReduction.Clique<T>>
             for (var i : clique.graph.nodes())
               for (var j : clique.graph.nodes())
                 if (!clique.graph.adjacentNodes(i).contains(j))
-                  writeLine("  (or (not V%s,%d) (not V%s,%d))", i, r, j, s);
-    }
-
-    public void writeSuffix() {
-      stringBuilder.append(")");
-    }
-
-    public String get() {
-      return stringBuilder.toString();
-    }
-
-    private void writeLine(String string) {
-      stringBuilder.append(string + "\n");
+                  sink.addClause(literal(i, r, true), literal(j, s, true));
     }
 
-    private void writeLine(String format, Object... args) {
-      stringBuilder.append(String.format(format, args) + "\n");
+    private int literal(T i, int r, boolean negated) {
+      return Literals.of(variables.get(i)[r], negated);
     }
   }
 }
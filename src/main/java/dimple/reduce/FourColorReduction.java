@@ -2,42 +2,66 @@ package dimple.reduce;
 
 import com.google.common.graph.EndpointPair;
 import com.google.common.graph.Graph;
-import dimple.formula.Formula;
-import dimple.sexp.Sexpressions;
+import dimple.ClauseSink;
+import dimple.Literals;
+import dimple.Model;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class FourColorReduction<T> implements Reduction<Graph<T>> {
-  @Override
-  public Formula reduce(Graph<T> graph) {
-    var builder = new FourColorSexpressionBuilder(graph);
+  private static final String[] COLORS = {"R", "G", "B", "Y"};
 
-    builder.writePrefix();
-    builder.writeAllRegions();
-    builder.writeAllEdges();
-    builder.writeSuffix();
+  @Override
+  public void reduce(Graph<T> graph, ClauseSink sink) {
+    var writer = new FourColorClauseWriter(graph, sink);
 
-    return Sexpressions.compile(builder.get());
+    writer.writeAllRegions();
+    writer.writeAllEdges();
   }
 
   public static Map<String, String> decodeSolution(Map<String, Boolean> solution) {
     return solution.keySet().stream()
         .filter((k) -> solution.get(k))
-        .collect(Collectors.toMap((k) -> k.split("-")[0], (k) -> k.split("-")[1]));
+        .collect(Collectors.toMap(FourColorReduction::regionOf, FourColorReduction::colorOf));
+  }
+
+  public static Map<String, String> decodeSolution(Model solution) {
+    var colors = new HashMap<String, String>();
+    for (int v = solution.nextTrue(0); v != -1; v = solution.nextTrue(v + 1)) {
+      var variable = solution.name(v);
+      colors.put(regionOf(variable), colorOf(variable));
+    }
+    return colors;
+  }
+
+  // Variables are named region-C for the region having color C.
+  private static String regionOf(String variable) {
+    return variable.substring(0, variable.lastIndexOf('-'));
+  }
+
+  private static String colorOf(String variable) {
+    return variable.substring(variable.lastIndexOf('-') + 1);
   }
 
-  private class FourColorSexpressionBuilder {
-    private final StringBuilder stringBuilder = new StringBuilder();
+  private class FourColorClauseWriter {
+    private final ClauseSink sink;
     private final Graph<T> graph;
+    // The variables region-C of each region, one for each of the colors, interned once.
+    private final Map<T, int[]> variables;
 
-    FourColorSexpressionBuilder(Graph<T> graph) {
+    FourColorClauseWriter(Graph<T> graph, ClauseSink sink) {
+      this.sink = sink;
       this.graph = graph;
-    }
-
-    public void writePrefix() {
-      writeLine("(and");
+      this.variables = new HashMap<>();
+      for (T node : graph.nodes()) {
+        var colors = new int[COLORS.length];
+        for (int color = 0; color < COLORS.length; color++)
+          colors[color] = sink.variable(node + "-" + COLORS[color]);
+        variables.put(node, colors);
+      }
     }
 
     public void writeAllRegions() {
@@ -46,7 +70,7 @@ public class FourColorReduction<T> implements Reduction<Graph<T>> {
     }
 
     public void writeAllEdges() {
-      writeLine("  ; adjacent");
+      sink.comment("adjacent");
 
       Set<EndpointPair<T>> writtenEdges = new HashSet<>();
       for (var edge : graph.edges()) {
@@ -57,38 +81,22 @@ public class FourColorReduction<T> implements Reduction<Graph<T>> {
       }
     }
 
-    public void writeSuffix() {
-      stringBuilder.append(")");
-    }
-
-    public String get() {
-      return stringBuilder.toString();
+    private int literal(T region, int color, boolean negated) {
+      return Literals.of(variables.get(region)[color], negated);
     }
 
     private void writeRegion(T region) {
-      writeLine("  ; region %s", region);
-      writeLine("  (or %s-R %s-G %s-B %s-Y)", region, region, region, region);
-      writeLine("  (or (not %s-R) (not %s-B))", region, region);
-      writeLine("  (or (not %s-R) (not %s-G))", region, region);
-      writeLine("  (or (not %s-R) (not %s-Y))", region, region);
-      writeLine("  (or (not %s-B) (not %s-G))", region, region);
-      writeLine("  (or (not %s-B) (not %s-Y))", region, region);
-      writeLine("  (or (not %s-G) (not %s-Y))", region, region);
+      sink.comment("region " + region);
+      sink.addClause(literal(region, 0, false), literal(region, 1, false),
+          literal(region, 2, false), literal(region, 3, false));
+      for (int color = 0; color < COLORS.length; color++)
+        for (int other = color + 1; other < COLORS.length; other++)
+          sink.addClause(literal(region, color, true), literal(region, other, true));
     }
 
     private void writeEdge(EndpointPair<T> edge) {
-      writeLine("  (or (not %s-R) (not %s-R))", edge.nodeU(), edge.nodeV());
-      writeLine("  (or (not %s-G) (not %s-G))", edge.nodeU(), edge.nodeV());
-      writeLine("  (or (not %s-B) (not %s-B))", edge.nodeU(), edge.nodeV());
-      writeLine("  (or (not %s-Y) (not %s-Y))", edge.nodeU(), edge.nodeV());
-    }
-
-    private void writeLine(String string) {
-      stringBuilder.append(string + "\n");
-    }
-
-    private void writeLine(String format, Object... args) {
-      stringBuilder.append(String.format(format, args) + "\n");
+      for (int color = 0; color < COLORS.length; color++)
+        sink.addClause(literal(edge.nodeU(), color, true), literal(edge.nodeV(), color, true));
     }
   }
 }
@@ -1,8 +1,9 @@
 package dimple.reduce;
 
-import dimple.formula.Formula;
+import dimple.ClauseSink;
 
+// Reduces a problem to clauses over named variables, from which solutions are decoded.
 @FunctionalInterface
 interface Reduction<P> {
-  public Formula reduce(P problem);
+  public void reduce(P problem, ClauseSink sink);
 }
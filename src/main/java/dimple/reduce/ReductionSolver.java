@@ -1,10 +1,14 @@
 package dimple.reduce;
 
+import dimple.ClauseBuilder;
+import dimple.Model;
 import dimple.Solver;
-import dimple.formula.Formulas;
+import dimple.sexp.SexpressionWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class ReductionSolver<P> {
   private final Reduction<P> reduction;
@@ -18,14 +22,29 @@ public class ReductionSolver<P> {
   }
 
   private Solver createSolver(P problem) {
-    return Formulas.createSolver(reduction.reduce(problem));
+    var builder = new ClauseBuilder();
+    reduction.reduce(problem, builder);
+    return builder.createSolver();
   }
 
-  Optional<Map<String, Boolean>> solve(P problem) {
-    return createSolver(problem).solve();
+  Optional<Model> solve(P problem) {
+    return createSolver(problem).findModel();
   }
 
-  Optional<List<Map<String, Boolean>>> solveAll(P problem) {
-    return createSolver(problem).solveAll();
+  Optional<List<Model>> solveAll(P problem) {
+    var models = createSolver(problem).models().collect(Collectors.toList());
+    return models.isEmpty() ? Optional.empty() : Optional.of(models);
+  }
+
+  // The clauses of a problem as an s-expression, for debugging the reduction.
+  String toSexpression(P problem) {
+    var writer = new SexpressionWriter();
+    reduction.reduce(problem, writer);
+    return writer.toString();
+  }
+
+  // The clauses of a problem in DIMACS CNF, for other solvers.
+  void writeDimacs(P problem, Writer writer) throws IOException {
+    createSolver(problem).writeDimacs(writer);
   }
 }
@@ -1,54 +1,57 @@
 package dimple.reduce;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.math.IntMath;
-import dimple.formula.Formula;
-import dimple.sexp.Sexpressions;
+import dimple.ClauseSink;
+import dimple.Literals;
+import dimple.Model;
 import java.math.RoundingMode;
-import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 class SudokuReduction implements Reduction<int[][]> {
   @Override
-  public Formula reduce(int[][] sudoku) {
+  public void reduce(int[][] sudoku, ClauseSink sink) {
     Preconditions.checkArgument(isSudoku(sudoku), "Sudoku is invalid");
-    var builder = new SudokuSexpressionBuilder(sudoku);
+    var writer = new SudokuClauseWriter(sudoku, sink);
 
-    builder.writePrefix();
-    builder.writeValueForEachSquare();
-    builder.writeDedupedRows();
-    builder.writeDedupedCols();
-    builder.writeDedupedSqrts();
-    builder.writePuzzle();
-    builder.writeSuffix();
-
-    return Sexpressions.compile(builder.get());
+    writer.writeValueForEachSquare();
+    writer.writeDedupedRows();
+    writer.writeDedupedCols();
+    writer.writeDedupedSqrts();
+    writer.writePuzzle();
   }
 
   public static int[][] decodeSolution(Map<String, Boolean> solution) {
-    var map = solution.keySet().stream()
+    var squares = solution.keySet().stream()
         .filter((k) -> solution.get(k))
-        .map((k) -> k.substring(1))
-        .collect(Collectors.toMap(
-            (k) -> k.split("=")[0],
-            (k) -> Integer.valueOf(k.split("=")[1])));
+        .collect(Collectors.toList());
 
-    int dimention = IntMath.sqrt(map.size(), RoundingMode.FLOOR);
+    int dimention = IntMath.sqrt(squares.size(), RoundingMode.FLOOR);
     int[][] result = new int[dimention][dimention];
+    for (var variable : squares)
+      fillSquare(result, variable);
+    return result;
+  }
 
-    for (var element : map.entrySet()) {
-      int i = Integer.valueOf(element.getKey().split(",")[0]) - 1;
-      int j = Integer.valueOf(element.getKey().split(",")[1]) - 1;
-      result[i][j] = element.getValue();
-    }
-
+  public static int[][] decodeSolution(Model solution) {
+    int dimention = IntMath.sqrt(solution.trueCount(), RoundingMode.FLOOR);
+    int[][] result = new int[dimention][dimention];
+    for (int v = solution.nextTrue(0); v != -1; v = solution.nextTrue(v + 1))
+      fillSquare(result, solution.name(v));
     return result;
   }
 
+  // Variables are named Xi,j=value for the square at row i and column j, counting from 1.
+  private static void fillSquare(int[][] result, String variable) {
+    int comma = variable.indexOf(',');
+    int equals = variable.indexOf('=', comma);
+    int i = Integer.parseInt(variable, 1, comma, 10) - 1;
+    int j = Integer.parseInt(variable, comma + 1, equals, 10) - 1;
+    result[i][j] = Integer.parseInt(variable, equals + 1, variable.length(), 10);
+  }
+
   boolean isSudoku(int[][] sudoku) {
     for (int i = 0; i < sudoku.length; i++)
       if (sudoku[i].length != sudoku.length)
@@ -58,102 +61,80 @@ class SudokuReduction implements Reduction<int[][]> {
     return sqrt * sqrt == sudoku.length;
   }
 
-  private class SudokuSexpressionBuilder {
-    private final StringBuilder stringBuilder = new StringBuilder();
+  private class SudokuClauseWriter {
+    private final ClauseSink sink;
     private final int[][] sudoku;
     private final int size;
     private final int sqrt;
+    // The variable of each square and value, interned once.
+    private final int[][][] variables;
 
-    SudokuSexpressionBuilder(int[][] sudoku) {
+    SudokuClauseWriter(int[][] sudoku, ClauseSink sink) {
+      this.sink = sink;
       this.sudoku = sudoku;
       this.size = sudoku.length;
       this.sqrt = IntMath.sqrt(sudoku.length, RoundingMode.UNNECESSARY);
-    }
-
-    public void writePrefix() {
-      writeLine("(and");
+      this.variables = new int[size][size][size];
+      for (int i = 1; i <= size; i++)
+        for (int j = 1; j <= size; j++)
+          for (int value = 1; value <= size; value++)
+            variables[i - 1][j - 1][value - 1] = sink.variable(toVariable(i, j, value));
     }
 
     public void writeValueForEachSquare() {
       IntStream.rangeClosed(1, size).forEach(
           i -> IntStream.rangeClosed(1, size).forEach(
             j -> exactlyOneOf(IntStream.rangeClosed(1, size)
-              .boxed()
-              .map((value) -> toVariable(i, j, value))
-              .collect(Collectors.toList()))));
+              .map((value) -> literal(i, j, value)))));
     }
 
     public void writeDedupedRows() {
-      writeLine("  ; Rows cannot contain duplicate values");
+      sink.comment("Rows cannot contain duplicate values");
       IntStream.rangeClosed(1, size).forEach(
           i -> IntStream.rangeClosed(1, size).forEach(
             value -> exactlyOneOf(IntStream.rangeClosed(1, size)
-              .boxed()
-              .map((j) -> toVariable(i, j, value))
-              .collect(Collectors.toList()))));
+              .map((j) -> literal(i, j, value)))));
     }
 
     public void writeDedupedCols() {
-      writeLine("  ; Columns cannot contain duplicate values");
+      sink.comment("Columns cannot contain duplicate values");
       IntStream.rangeClosed(1, size).forEach(
           j -> IntStream.rangeClosed(1, size).forEach(
             value -> exactlyOneOf(IntStream.rangeClosed(1, size)
-              .boxed()
-              .map((i) -> toVariable(i, j, value))
-              .collect(Collectors.toList()))));
+              .map((i) -> literal(i, j, value)))));
     }
 
     public void writeDedupedSqrts() {
-      writeLine("  ; Squares cannot contain duplicate values");
+      sink.comment("Squares cannot contain duplicate values");
       IntStream.iterate(1, i -> i + sqrt).limit(sqrt).forEach(
           i -> IntStream.iterate(1, j -> j + sqrt).limit(sqrt).forEach(
             j -> IntStream.rangeClosed(1, size).forEach(
               value -> exactlyOneOf(IntStream.range(0, sqrt)
-                .boxed()
-                .map((subRow) -> IntStream.range(0, sqrt)
-                    .boxed()
-                    .map((subCol) -> toVariable(i + subRow, j + subCol, value)))
-                .flatMap(Function.identity())
-                .collect(Collectors.toList())))));
+                .flatMap((subRow) -> IntStream.range(0, sqrt)
+                    .map((subCol) -> literal(i + subRow, j + subCol, value)))))));
     }
 
     public void writePuzzle() {
-      writeLine("  ; The following must be true");
+      sink.comment("The following must be true");
       for (int i = 0; i < size; i++) {
         for (int j = 0; j < size; j++) {
           int value = sudoku[i][j];
           if (value != 0)
-            writeLine("  " + toVariable(i + 1, j + 1, value));
+            sink.addClause(literal(i + 1, j + 1, value));
         }
       }
     }
 
-    public void writeSuffix() {
-      stringBuilder.append(")");
-    }
-
-    public String get() {
-      return stringBuilder.toString();
-    }
-
     private String toVariable(int i, int j, int value) {
-      return String.format("X%d,%d=%d", i, j, value);
-    }
-
-    private void exactlyOneOf(List<String> literals) {
-      writeLine("  ; One of '(%s)", Joiner.on(' ').join(literals));
-      writeLine("  (or %s)", Joiner.on(' ').join(literals));
-      for (int i = 0; i < literals.size(); i++)
-        for (int j = i + 1; j < literals.size(); j++)
-          writeLine("  (or (not %s) (not %s))", literals.get(i), literals.get(j));
+      return "X" + i + "," + j + "=" + value;
     }
 
-    private void writeLine(String string) {
-      stringBuilder.append(string + "\n");
+    private int literal(int i, int j, int value) {
+      return Literals.of(variables[i - 1][j - 1][value - 1], false);
     }
 
-    private void writeLine(String format, Object... args) {
-      stringBuilder.append(String.format(format, args) + "\n");
+    private void exactlyOneOf(IntStream literals) {
+      sink.addExactly(1, literals.toArray());
     }
   }
 }
@@ -1,7 +1,7 @@
 package dimple.sexp;
 
 public class ParseException extends RuntimeException {
-  ParseException(String message) {
+  public ParseException(String message) {
     super(message);
   }
 }
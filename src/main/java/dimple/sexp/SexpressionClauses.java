@@ -0,0 +1,154 @@
+package dimple.sexp;
+
+import dimple.ClauseSink;
+import dimple.Literals;
+import dimple.SolverOptions;
+
+// Recognises s-expressions which are already in conjunctive normal form, and adds their clauses
+// to a clause sink straight from the tree, without compiling them to formulas first. Such an
+// expression is a conjunction of clauses over literals, or a single one. Cardinality and XOR
+// constraints over literals are recognised along with clauses when the options keep them native.
+// Anything else is left to the general compiler, which also reports malformed expressions.
+final class SexpressionClauses {
+  private final SexpressionTree tree;
+  private final SolverOptions options;
+  // The variable of each symbol plus one, zero before the symbol is first added.
+  private final int[] variables;
+
+  SexpressionClauses(SexpressionTree tree, SolverOptions options) {
+    this.tree = tree;
+    this.options = options;
+    this.variables = new int[tree.symbols().size()];
+  }
+
+  // The atom a list starts with, if any.
+  private String function(int list) {
+    if (tree.size(list) == 0 || !SexpressionTree.isAtom(tree.element(list, 0)))
+      return "";
+    return tree.atom(tree.element(list, 0));
+  }
+
+  private boolean isLiteral(int node) {
+    if (SexpressionTree.isAtom(node))
+      return true;
+    return tree.size(node) == 2 && function(node).equals("not")
+        && SexpressionTree.isAtom(tree.element(node, 1));
+  }
+
+  // Whether the elements of a list from the given index on are literals, of which there are at
+  // least the given amount.
+  private boolean areLiterals(int list, int from, int amount) {
+    if (tree.size(list) - from < amount)
+      return false;
+    for (int i = from; i < tree.size(list); i++)
+      if (!isLiteral(tree.element(list, i)))
+        return false;
+    return true;
+  }
+
+  // The bound of a cardinality constraint, or -1 when it has none.
+  private int bound(int list) {
+    int bound = tree.element(list, 1);
+    if (!SexpressionTree.isAtom(bound))
+      return -1;
+    try {
+      return Integer.parseInt(tree.atom(bound));
+    } catch (NumberFormatException ignored) {
+      return -1;
+    }
+  }
+
+  private boolean isConstraint(int node) {
+    if (isLiteral(node))
+      return true;
+    switch (function(node)) {
+      case "or":
+        return areLiterals(node, 1, 2);
+      case "xor":
+        return options.gaussianElimination() && areLiterals(node, 1, 2);
+      case "atmost":
+      case "atleast":
+      case "exactly":
+        return options.cardinalityEncoding() == SolverOptions.CardinalityEncoding.NATIVE
+            && areLiterals(node, 2, 1) && bound(node) >= 0;
+      default:
+        return false;
+    }
+  }
+
+  private boolean isConjunction(int node) {
+    return !SexpressionTree.isAtom(node) && function(node).equals("and");
+  }
+
+  boolean isCnf() {
+    int root = tree.root();
+    if (!isConjunction(root))
+      return isConstraint(root);
+    if (tree.size(root) < 3)
+      return false;
+    for (int i = 1; i < tree.size(root); i++)
+      if (!isConstraint(tree.element(root, i)))
+        return false;
+    return true;
+  }
+
+  private int literal(int node, ClauseSink sink) {
+    boolean negated = !SexpressionTree.isAtom(node);
+    if (negated)
+      node = tree.element(node, 1);
+    int symbol = ~node;
+    if (variables[symbol] == 0)
+      variables[symbol] = sink.variable(tree.atom(node)) + 1;
+    return Literals.of(variables[symbol] - 1, negated);
+  }
+
+  private int[] literals(int list, int from, ClauseSink sink) {
+    var literals = new int[tree.size(list) - from];
+    for (int i = 0; i < literals.length; i++)
+      literals[i] = literal(tree.element(list, from + i), sink);
+    return literals;
+  }
+
+  private static int[] negate(int[] literals) {
+    for (int i = 0; i < literals.length; i++)
+      literals[i] = Literals.negate(literals[i]);
+    return literals;
+  }
+
+  // At least k of n literals is at most n - k of their negations, and more than n cannot hold.
+  private void add(int node, ClauseSink sink) {
+    if (isLiteral(node)) {
+      sink.addClause(literal(node, sink));
+      return;
+    }
+    var function = function(node);
+    if (function.equals("or")) {
+      sink.addClause(literals(node, 1, sink));
+      return;
+    } else if (function.equals("xor")) {
+      sink.addXor(literals(node, 1, sink));
+      return;
+    }
+
+    int bound = bound(node);
+    var literals = literals(node, 2, sink);
+    if (function.equals("atmost"))
+      sink.addAtMost(bound, literals);
+    else if (bound > literals.length)
+      sink.addClause();
+    else if (function.equals("atleast"))
+      sink.addAtMost(literals.length - bound, negate(literals));
+    else
+      sink.addExactly(bound, literals);
+  }
+
+  // Adds the clauses of an expression recognised by isCnf().
+  void addTo(ClauseSink sink) {
+    int root = tree.root();
+    if (!isConjunction(root))
+      add(root, sink);
+    else
+      for (int i = 1; i < tree.size(root); i++)
+        add(tree.element(root, i), sink);
+  }
+}
@@ -1,85 +1,148 @@
 package dimple.sexp;
 
-import dimple.formula.Atom;
-import dimple.formula.BinaryConnective;
 import dimple.formula.Formula;
-import dimple.formula.UnaryConnective;
+import dimple.formula.FormulaFactory;
 
+// Compiles s-expressions in their compact representation. Lists come after the lists in them, so
+// compiling them in order finds the operands of each already compiled, and needs no recursion.
 public class SexpressionCompiler {
+  private final SexpressionTree tree;
+  private final FormulaFactory factory;
+  private final Formula[] lists;
+  private final Formula[] variables;
 
-  private static String firstAtom(final Either<String, Sexpression> first) throws ParseException {
-    try {
-      return (String)first.match((v) -> v, (v) -> v);
-    } catch (ClassCastException ignored) {
+  private SexpressionCompiler(SexpressionTree tree, FormulaFactory factory) {
+    this.tree = tree;
+    this.factory = factory;
+    this.lists = new Formula[tree.lists()];
+    this.variables = new Formula[tree.symbols().size()];
+  }
+
+  private String atom(int node) throws ParseException {
+    if (!SexpressionTree.isAtom(node))
       throw new ParseException("Expected atom, found list");
-    }
+    return tree.atom(node);
   }
 
-  private static Formula compileRecursive(final Either<String, Sexpression> element)
-      throws ParseException {
-    return element.match((String s) -> new Atom.Var(s), (Sexpression sexp) -> compile(sexp));
+  private Formula operand(int node) {
+    if (!SexpressionTree.isAtom(node))
+      return lists[node];
+    if (variables[~node] == null)
+      variables[~node] = factory.var(tree.atom(node));
+    return variables[~node];
+  }
+
+  // The operands of a list from the given index on.
+  private Formula[] operands(int list, int from) {
+    var operands = new Formula[tree.size(list) - from];
+    for (int i = 0; i < operands.length; i++)
+      operands[i] = operand(tree.element(list, from + i));
+    return operands;
   }
 
-  private static Formula compileNot(final Sexpression sexp) throws ParseException {
-    if (sexp.size() != 1)
+  private Formula compileNot(int list) throws ParseException {
+    if (tree.size(list) != 2)
       throw new ParseException("To many arguments to `not' function");
-    return new UnaryConnective.Not(compileRecursive(sexp.getFirst()));
+    return factory.not(operand(tree.element(list, 1)));
   }
 
-  private static Formula compileAnd(final Sexpression sexp) throws ParseException {
-    if (sexp.size() < 2)
+  private Formula compileAnd(int list) throws ParseException {
+    if (tree.size(list) < 3)
       throw new ParseException("Not enough arguments to `and' function'");
-    if (sexp.size() == 2)
-      return new BinaryConnective.And(
-          compileRecursive(sexp.getFirst()), compileRecursive(sexp.getLast()));
-
-    Formula result = compileRecursive(sexp.removeFirst());
-    for (var element : sexp)
-      result = new BinaryConnective.And(result, compileRecursive(element));
-    return result;
+    return factory.and(operands(list, 1));
   }
 
-  private static Formula compileOr(final Sexpression sexp) throws ParseException {
-    if (sexp.size() < 2)
+  private Formula compileOr(int list) throws ParseException {
+    if (tree.size(list) < 3)
       throw new ParseException("Not enough arguments to `or' function'");
-    if (sexp.size() == 2)
-      return new BinaryConnective.Or(
-          compileRecursive(sexp.getFirst()), compileRecursive(sexp.getLast()));
+    return factory.or(operands(list, 1));
+  }
 
-    Formula result = compileRecursive(sexp.removeFirst());
-    for (var element : sexp)
-      result = new BinaryConnective.Or(result, compileRecursive(element));
-    return result;
+  private Formula compileXor(int list) throws ParseException {
+    if (tree.size(list) < 3)
+      throw new ParseException("Not enough arguments to `xor' function'");
+    return factory.xor(operands(list, 1));
   }
 
-  private static Formula compileIf(final Sexpression sexp) throws ParseException {
-    if (sexp.size() != 2)
+  private Formula compileIf(int list) throws ParseException {
+    if (tree.size(list) != 3)
       throw new ParseException("Invalid amount of arguments to `if' function'");
-    return new BinaryConnective.If(
-        compileRecursive(sexp.getFirst()), compileRecursive(sexp.getLast()));
+    return factory.implies(operand(tree.element(list, 1)), operand(tree.element(list, 2)));
   }
 
-  private static Formula compileIff(final Sexpression sexp) throws ParseException {
-    if (sexp.size() != 2)
+  private Formula compileIff(int list) throws ParseException {
+    if (tree.size(list) != 3)
       throw new ParseException("Invalid amount of arguments to `iff' function'");
-    return new BinaryConnective.Iff(
-        compileRecursive(sexp.getFirst()), compileRecursive(sexp.getLast()));
+    return factory.iff(operand(tree.element(list, 1)), operand(tree.element(list, 2)));
   }
 
-  public static Formula compile(final Sexpression sexp) throws ParseException {
-    var first = firstAtom(sexp.removeFirst());
+  // (atmost k ...), (atleast k ...) and (exactly k ...) bound the amount of true operands by k.
+  private Formula compileCardinality(String function, int list) throws ParseException {
+    if (tree.size(list) < 3)
+      throw new ParseException("Not enough arguments to `" + function + "' function");
+    int bound;
+    try {
+      bound = Integer.parseInt(atom(tree.element(list, 1)));
+    } catch (NumberFormatException ignored) {
+      throw new ParseException("Expected a bound for `" + function + "' function");
+    }
+    if (bound < 0)
+      throw new ParseException("Negative bound for `" + function + "' function");
+
+    var operands = operands(list, 2);
+    if (function.equals("atmost"))
+      return factory.atMost(bound, operands);
+    else if (function.equals("atleast"))
+      return factory.atLeast(bound, operands);
+    else
+      return factory.exactly(bound, operands);
+  }
+
+  private Formula compileList(int list) throws ParseException {
+    if (tree.size(list) == 0)
+      throw new ParseException("Empty list");
+    var first = atom(tree.element(list, 0));
 
     if (first.equals("not"))
-      return compileNot(sexp);
+      return compileNot(list);
     else if (first.equals("and"))
-      return compileAnd(sexp);
+      return compileAnd(list);
     else if (first.equals("or"))
-      return compileOr(sexp);
+      return compileOr(list);
+    else if (first.equals("xor"))
+      return compileXor(list);
     else if (first.equals("if"))
-      return compileIf(sexp);
+      return compileIf(list);
     else if (first.equals("iff"))
-      return compileIff(sexp);
+      return compileIff(list);
+    else if (first.equals("atmost") || first.equals("atleast") || first.equals("exactly"))
+      return compileCardinality(first, list);
     else
       throw new ParseException("Invalid function: " + first);
   }
+
+  private Formula compile() throws ParseException {
+    for (int list = 0; list < lists.length; list++)
+      lists[list] = compileList(list);
+    return operand(tree.root());
+  }
+
+  // Identical subexpressions compile to a single shared node.
+  public static Formula compile(final SexpressionTree tree) throws ParseException {
+    return compile(tree, new FormulaFactory());
+  }
+
+  public static Formula compile(final SexpressionTree tree, final FormulaFactory factory)
+      throws ParseException {
+    return new SexpressionCompiler(tree, factory).compile();
+  }
+
+  public static Formula compile(final Sexpression sexp) throws ParseException {
+    return compile(SexpressionTree.of(sexp));
+  }
+
+  public static Formula compile(final Sexpression sexp, final FormulaFactory factory)
+      throws ParseException {
+    return compile(SexpressionTree.of(sexp), factory);
+  }
 }
@@ -1,44 +1,92 @@
 package dimple.sexp;
 
-import com.google.common.base.Splitter;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 
+// Parses a single s-expression from tokens read on demand. Lists being parsed are kept on an
+// explicit stack rather than the call stack, so nesting is bounded by memory alone.
 public class SexpressionParser {
-  private static String removeComments(String string) {
-    return string.replaceAll(";.*\n", "\n");
+  public static Sexpression parse(Reader reader) throws IOException, ParseException {
+    var tokenizer = new SexpressionTokenizer(reader);
+    var open = new ArrayDeque<Sexpression>();
+    Sexpression parsed = null;
+    while (parsed == null) {
+      switch (tokenizer.next()) {
+        case OPEN:
+          open.push(new Sexpression());
+          break;
+        case CLOSE:
+          if (open.isEmpty())
+            throw new ParseException("Unexpected ')'");
+          var sexp = open.pop();
+          if (open.isEmpty())
+            parsed = sexp;
+          else
+            open.peek().add(Either.right(sexp));
+          break;
+        case ATOM:
+          if (open.isEmpty())
+            parsed = new Sexpression(Either.left(tokenizer.atom()));
+          else
+            open.peek().add(Either.left(tokenizer.atom()));
+          break;
+        case EOF:
+          throw new ParseException("Unexpected EOF");
+      }
+    }
+    if (tokenizer.next() != SexpressionTokenizer.Token.EOF)
+      throw new ParseException("Expected EOF after expression");
+    return parsed;
   }
 
-  private static List<String> tokenize(String string) {
-    return Splitter.on(Pattern.compile("\\s+"))
-      .omitEmptyStrings()
-      .splitToList(string.replace("(", " ( ").replace(")", " ) "));
+  // Parses into the compact representation, in the same way.
+  public static SexpressionTree parseTree(Reader reader) throws IOException, ParseException {
+    var tokenizer = new SexpressionTokenizer(reader);
+    var tree = new SexpressionTree();
+    do {
+      switch (tokenizer.next()) {
+        case OPEN:
+          tree.open();
+          break;
+        case CLOSE:
+          if (tree.depth() == 0)
+            throw new ParseException("Unexpected ')'");
+          tree.close();
+          break;
+        case ATOM:
+          // A single atom is taken as a list of it, as by parse().
+          if (tree.depth() == 0) {
+            tree.open();
+            tree.addAtom(tokenizer.atom(tree.symbols()));
+            tree.close();
+          } else
+            tree.addAtom(tokenizer.atom(tree.symbols()));
+          break;
+        case EOF:
+          throw new ParseException("Unexpected EOF");
+      }
+    } while (tree.depth() > 0);
+    if (tokenizer.next() != SexpressionTokenizer.Token.EOF)
+      throw new ParseException("Expected EOF after expression");
+    return tree;
   }
 
-  private static Either<String, Sexpression> parseInner(Queue<String> tokens)
-      throws ParseException {
-    if (tokens.isEmpty())
-      throw new ParseException("Unexpected EOF");
-    String token = tokens.remove();
-    if (token.equals("(")) {
-      var sexp = new Sexpression();
-      while (!tokens.peek().equals(")"))
-        sexp.add(parseInner(tokens));
-      tokens.remove();
-      return Either.right(sexp);
-    } else if (token.equals(")"))
-      throw new ParseException("Unexpected ')'");
-    else
-      return Either.left(token);
+  public static Sexpression parse(String string) throws ParseException {
+    try {
+      return parse(new StringReader(string));
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
   }
 
-  public static Sexpression parse(String string) throws ParseException {
-    var parsed = parseInner(new LinkedList<>(tokenize(removeComments(string))));
-    return parsed.match(
-        (String atom) -> new Sexpression(Either.left(atom)),
-        (Sexpression atom) -> atom
-    );
+  public static SexpressionTree parseTree(String string) throws ParseException {
+    try {
+      return parseTree(new StringReader(string));
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
   }
 }
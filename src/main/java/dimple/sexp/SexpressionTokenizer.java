@@ -0,0 +1,95 @@
+package dimple.sexp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Splits the characters of a reader into tokens on demand, in a single pass over a fixed buffer.
+// Tokens are parentheses and atoms, which are separated by whitespace or parentheses. A comment
+// runs from a semicolon to the end of the line.
+final class SexpressionTokenizer {
+  enum Token { OPEN, CLOSE, ATOM, EOF }
+
+  private static final int BUFFER_SIZE = 1 << 13;
+
+  private final Reader reader;
+  private final char[] buffer;
+  private int position;
+  private int limit;
+  // The characters of the last atom.
+  private char[] atom;
+  private int length;
+
+  SexpressionTokenizer(Reader reader) {
+    this.reader = reader;
+    this.buffer = new char[BUFFER_SIZE];
+    this.position = 0;
+    this.limit = 0;
+    this.atom = new char[64];
+    this.length = 0;
+  }
+
+  // Whether there are characters left, reading more once the buffer is consumed.
+  private boolean fill() throws IOException {
+    while (position == limit) {
+      limit = reader.read(buffer);
+      position = 0;
+      if (limit == -1) {
+        limit = 0;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDelimiter(char c) {
+    return c == '(' || c == ')' || c == ';' || Character.isWhitespace(c);
+  }
+
+  Token next() throws IOException {
+    while (fill()) {
+      char c = buffer[position++];
+      if (c == '(')
+        return Token.OPEN;
+      else if (c == ')')
+        return Token.CLOSE;
+      else if (c == ';')
+        skipComment();
+      else if (!Character.isWhitespace(c)) {
+        readAtom(c);
+        return Token.ATOM;
+      }
+    }
+    return Token.EOF;
+  }
+
+  private void skipComment() throws IOException {
+    while (fill())
+      if (buffer[position++] == '\n')
+        return;
+  }
+
+  // Atoms may span several fills of the buffer, so they are copied aside.
+  private void readAtom(char first) throws IOException {
+    length = 0;
+    append(first);
+    while (fill() && !isDelimiter(buffer[position]))
+      append(buffer[position++]);
+  }
+
+  private void append(char c) {
+    if (length == atom.length)
+      atom = Arrays.copyOf(atom, length << 1);
+    atom[length++] = c;
+  }
+
+  // The text of the last atom returned by next().
+  String atom() {
+    return new String(atom, 0, length);
+  }
+
+  // The symbol of the last atom returned by next().
+  int atom(SymbolTable symbols) {
+    return symbols.intern(atom, length);
+  }
+}
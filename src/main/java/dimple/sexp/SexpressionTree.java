@@ -0,0 +1,126 @@
+package dimple.sexp;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+// An s-expression stored compactly, as an alternative to Sexpression for large inputs. Atoms are
+// interned into a symbol table, and a node is either an atom, encoded as the complement of its
+// symbol, or a list, encoded as its index. The elements of every list are stored back to back in
+// a single int[], in the order the lists are closed, so every list comes after the lists in it.
+public final class SexpressionTree {
+  private final SymbolTable symbols;
+  private int[] elements;
+  private int elementCount;
+  // The elements of each list start at starts[list] and end where those of the next one start.
+  private int[] starts;
+  private int lists;
+
+  // While building, the elements of the lists still open, and where each of those lists starts.
+  private int[] pending;
+  private int pendingCount;
+  private int[] opened;
+  private int depth;
+
+  SexpressionTree() {
+    this.symbols = new SymbolTable();
+    this.elements = new int[64];
+    this.starts = new int[16];
+    this.pending = new int[64];
+    this.opened = new int[16];
+  }
+
+  // Copies a Sexpression, whose top level is taken as a list.
+  static SexpressionTree of(Sexpression sexp) {
+    var tree = new SexpressionTree();
+    var iterators = new ArrayDeque<Iterator<Either<String, Sexpression>>>();
+    tree.open();
+    iterators.push(sexp.iterator());
+    while (!iterators.isEmpty()) {
+      var iterator = iterators.peek();
+      if (!iterator.hasNext()) {
+        iterators.pop();
+        tree.close();
+        continue;
+      }
+      iterator.next().match(
+          (String atom) -> {
+            tree.addAtom(tree.symbols.intern(atom));
+            return null;
+          },
+          (Sexpression list) -> {
+            tree.open();
+            iterators.push(list.iterator());
+            return null;
+          });
+    }
+    return tree;
+  }
+
+  SymbolTable symbols() {
+    return symbols;
+  }
+
+  private void push(int node) {
+    if (pendingCount == pending.length)
+      pending = Arrays.copyOf(pending, pendingCount << 1);
+    pending[pendingCount++] = node;
+  }
+
+  void open() {
+    if (depth == opened.length)
+      opened = Arrays.copyOf(opened, depth << 1);
+    opened[depth++] = pendingCount;
+  }
+
+  void addAtom(int symbol) {
+    push(~symbol);
+  }
+
+  // Moves the elements of the innermost open list into place, and adds it to its parent.
+  void close() {
+    int from = opened[--depth];
+    int size = pendingCount - from;
+    if (elementCount + size > elements.length)
+      elements = Arrays.copyOf(elements, Math.max(elements.length << 1, elementCount + size));
+    System.arraycopy(pending, from, elements, elementCount, size);
+    if (lists + 1 == starts.length)
+      starts = Arrays.copyOf(starts, starts.length << 1);
+    starts[lists] = elementCount;
+    elementCount += size;
+    starts[lists + 1] = elementCount;
+    pendingCount = from;
+    push(lists++);
+  }
+
+  // The amount of lists open while building.
+  int depth() {
+    return depth;
+  }
+
+  // The node of the whole expression, once it is built.
+  public int root() {
+    return pending[0];
+  }
+
+  public static boolean isAtom(int node) {
+    return node < 0;
+  }
+
+  public String atom(int node) {
+    return symbols.name(~node);
+  }
+
+  // The amount of lists, which are numbered from zero.
+  public int lists() {
+    return lists;
+  }
+
+  public int size(int list) {
+    return starts[list + 1] - starts[list];
+  }
+
+  public int element(int list, int index) {
+    return elements[starts[list] + index];
+  }
+}
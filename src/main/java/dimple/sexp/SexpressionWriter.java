@@ -0,0 +1,88 @@
+package dimple.sexp;
+
+import com.google.common.base.Preconditions;
+import dimple.ClauseSink;
+import dimple.Literals;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes clauses as the s-expression of their conjunction, an expression to a line, which
+// Sexpressions.compile() reads back. Reductions are solved through a ClauseBuilder, and written
+// out this way only to be read.
+public final class SexpressionWriter implements ClauseSink {
+  private final List<String> names = new ArrayList<>();
+  private final Map<String, Integer> variables = new HashMap<>();
+  private final StringBuilder builder = new StringBuilder("(and\n");
+
+  @Override
+  public int variable(String name) {
+    return variables.computeIfAbsent(name, (k) -> {
+      names.add(name);
+      return names.size() - 1;
+    });
+  }
+
+  private void literal(int literal) {
+    var name = names.get(Literals.variable(literal));
+    if (Literals.isNegated(literal))
+      builder.append("(not ").append(name).append(')');
+    else
+      builder.append(name);
+  }
+
+  private void write(String function, int... literals) {
+    builder.append("  (").append(function);
+    for (int literal : literals) {
+      builder.append(' ');
+      literal(literal);
+    }
+    builder.append(")\n");
+  }
+
+  // A disjunction or XOR of a single literal is written as the literal alone.
+  private void writeConnective(String connective, int... literals) {
+    Preconditions.checkArgument(literals.length > 0, "Expected literals");
+    if (literals.length > 1)
+      write(connective, literals);
+    else {
+      builder.append("  ");
+      literal(literals[0]);
+      builder.append('\n');
+    }
+  }
+
+  @Override
+  public void addClause(int... literals) {
+    writeConnective("or", literals);
+  }
+
+  @Override
+  public void addAtMost(int bound, int... literals) {
+    if (bound < literals.length)
+      write("atmost " + bound, literals);
+  }
+
+  @Override
+  public void addExactly(int bound, int... literals) {
+    Preconditions.checkArgument(bound <= literals.length, "Bound exceeds the literals");
+    if (literals.length > 0)
+      write("exactly " + bound, literals);
+  }
+
+  @Override
+  public void addXor(int... literals) {
+    writeConnective("xor", literals);
+  }
+
+  @Override
+  public void comment(String text) {
+    builder.append("  ; ").append(text).append('\n');
+  }
+
+  @Override
+  public String toString() {
+    return builder.toString() + ")";
+  }
+}
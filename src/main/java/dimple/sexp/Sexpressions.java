@@ -1,9 +1,41 @@
 package dimple.sexp;
 
+import dimple.ClauseBuilder;
+import dimple.Solver;
+import dimple.SolverOptions;
 import dimple.formula.Formula;
+import dimple.formula.Formulas;
+import java.io.IOException;
+import java.io.Reader;
 
 public class Sexpressions {
   public static Formula compile(String program) throws ParseException {
-    return SexpressionCompiler.compile(SexpressionParser.parse(program));
+    return SexpressionCompiler.compile(SexpressionParser.parseTree(program));
+  }
+
+  public static Formula compile(Reader program) throws IOException, ParseException {
+    return SexpressionCompiler.compile(SexpressionParser.parseTree(program));
+  }
+
+  // Programs already in conjunctive normal form are added to the solver as they are, and others
+  // are compiled and converted, see SexpressionClauses.
+  public static Solver createSolver(SexpressionTree program, SolverOptions options)
+      throws ParseException {
+    var clauses = new SexpressionClauses(program, options);
+    if (!clauses.isCnf())
+      return Formulas.createSolver(SexpressionCompiler.compile(program), options);
+    var builder = new ClauseBuilder();
+    clauses.addTo(builder);
+    return builder.createSolver(options);
+  }
+
+  public static Solver createSolver(String program, SolverOptions options)
+      throws ParseException {
+    return createSolver(SexpressionParser.parseTree(program), options);
+  }
+
+  public static Solver createSolver(Reader program, SolverOptions options)
+      throws IOException, ParseException {
+    return createSolver(SexpressionParser.parseTree(program), options);
   }
 }
@@ -0,0 +1,82 @@
+package dimple.sexp;
+
+import java.util.Arrays;
+
+// Interns the atoms of s-expressions, numbering them from zero in the order they are first seen.
+// Atoms are looked up by their characters in an open addressing table, so an atom seen before
+// costs no allocation.
+final class SymbolTable {
+  private String[] names;
+  private int[] hashes;
+  private int size;
+  // Symbols plus one by hash, zero for empty slots.
+  private int[] table;
+
+  SymbolTable() {
+    this.names = new String[16];
+    this.hashes = new int[names.length];
+    this.size = 0;
+    this.table = new int[32];
+  }
+
+  private static int hash(char[] chars, int length) {
+    int hash = 0;
+    for (int i = 0; i < length; i++)
+      hash = 31 * hash + chars[i];
+    return hash ^ hash >>> 16;
+  }
+
+  private static boolean matches(String name, char[] chars, int length) {
+    if (name.length() != length)
+      return false;
+    for (int i = 0; i < length; i++)
+      if (name.charAt(i) != chars[i])
+        return false;
+    return true;
+  }
+
+  int intern(char[] chars, int length) {
+    int hash = hash(chars, length);
+    int mask = table.length - 1;
+    int slot = hash & mask;
+    for (; table[slot] != 0; slot = slot + 1 & mask) {
+      int symbol = table[slot] - 1;
+      if (hashes[symbol] == hash && matches(names[symbol], chars, length))
+        return symbol;
+    }
+
+    if (size == names.length) {
+      names = Arrays.copyOf(names, size << 1);
+      hashes = Arrays.copyOf(hashes, size << 1);
+    }
+    names[size] = new String(chars, 0, length);
+    hashes[size] = hash;
+    table[slot] = size + 1;
+    if (++size * 2 > table.length)
+      rehash();
+    return size - 1;
+  }
+
+  int intern(String name) {
+    return intern(name.toCharArray(), name.length());
+  }
+
+  private void rehash() {
+    table = new int[table.length << 1];
+    int mask = table.length - 1;
+    for (int symbol = 0; symbol < size; symbol++) {
+      int slot = hashes[symbol] & mask;
+      while (table[slot] != 0)
+        slot = slot + 1 & mask;
+      table[slot] = symbol + 1;
+    }
+  }
+
+  String name(int symbol) {
+    return names[symbol];
+  }
+
+  int size() {
+    return size;
+  }
+}
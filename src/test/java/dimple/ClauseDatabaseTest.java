@@ -0,0 +1,78 @@
+package dimple;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ClauseDatabaseTest {
+  @Test
+  public void clausesAreStoredContiguously() {
+    var database = new ClauseDatabase();
+    int first = database.add(Literals.of(0, false), Literals.of(1, true));
+    int second = database.add(Literals.of(2, false));
+
+    assertEquals(2, database.size());
+    assertEquals(3, database.variables());
+    assertEquals(second, database.next(first));
+    assertEquals(database.end(), database.next(second));
+    assertArrayEquals(new int[]{ 0, 3 }, database.literals(first));
+    assertArrayEquals(new int[]{ 4 }, database.literals(second));
+  }
+
+  @Test
+  public void duplicateLiteralsAreRemoved() {
+    var database = new ClauseDatabase();
+    int ref = database.add(4, 1, 4, 1);
+
+    assertArrayEquals(new int[]{ 1, 4 }, database.literals(ref));
+  }
+
+  @Test
+  public void emptyClause() {
+    var database = new ClauseDatabase();
+    database.add(2);
+    assertFalse(database.hasEmptyClause());
+    database.add();
+    assertTrue(database.hasEmptyClause());
+  }
+
+  @Test
+  public void xorConstraints() {
+    var database = new ClauseDatabase();
+    database.addXor(Literals.of(1, false), Literals.of(3, true), Literals.of(1, true));
+    assertArrayEquals(new int[]{ 6 }, database.literals(database.first()));
+
+    database.addXor(Literals.of(4, false), Literals.of(2, false), Literals.of(0, true));
+    assertEquals(1, database.xorCount());
+    assertArrayEquals(new int[]{ 1, 4, 8 }, database.xorLiterals(0));
+    assertEquals(5, database.variables());
+
+    database.addXor(Literals.of(0, false), Literals.of(0, true));
+    assertFalse(database.hasEmptyClause());
+    database.addXor(Literals.of(0, false), Literals.of(0, false));
+    assertTrue(database.hasEmptyClause());
+  }
+
+  @Test
+  public void atMostConstraints() {
+    var database = new ClauseDatabase();
+    database.addAtMost(3, 0, 2, 4);
+    assertEquals(0, database.size());
+    assertEquals(0, database.cardinalityCount());
+
+    database.addAtMost(2, 0, 2, 4);
+    assertArrayEquals(new int[]{ 1, 3, 5 }, database.literals(database.first()));
+
+    database.addAtMost(0, 6);
+    assertEquals(2, database.size());
+    assertEquals(4, database.variables());
+
+    database.addAtMost(2, 0, 2, 4, 7);
+    assertEquals(1, database.cardinalityCount());
+    assertEquals(2, database.cardinalityBound(0));
+    assertArrayEquals(new int[]{ 0, 2, 4, 7 }, database.cardinalityLiterals(0));
+  }
+}
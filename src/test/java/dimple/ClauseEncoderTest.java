@@ -0,0 +1,72 @@
+package dimple;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.math.LongMath;
+import org.junit.Test;
+
+public class ClauseEncoderTest {
+  // Collects the clauses into a database, numbering fresh variables after the given ones.
+  private static class Collector extends ClauseEncoder {
+    final ClauseDatabase clauses = new ClauseDatabase();
+    private int variables;
+
+    Collector(int variables) {
+      this.variables = variables;
+    }
+
+    @Override
+    protected int fresh() {
+      return Literals.of(variables++, false);
+    }
+
+    @Override
+    protected void clause(int... literals) {
+      clauses.add(literals);
+    }
+  }
+
+  // Every other literal is negated, which leaves the amount of models the same.
+  private static int[] literals(int n) {
+    var literals = new int[n];
+    for (int i = 0; i < n; i++)
+      literals[i] = Literals.of(i, i % 2 == 1);
+    return literals;
+  }
+
+  // The models of the first n variables, with fresh variables hidden.
+  private static long models(Collector encoder, int n) {
+    var names = ImmutableBiMap.<String, Integer>builder();
+    for (int i = 0; i < n; i++)
+      names.put("x" + i, i);
+    return new Solver(names.build(), encoder.clauses).solutions().count();
+  }
+
+  @Test
+  public void atMostAllowsUpToTheBound() {
+    for (int n = 1; n <= 7; n++)
+      for (int bound = 0; bound <= n; bound++) {
+        var encoder = new Collector(n);
+        encoder.atMost(bound, literals(n));
+        long expected = 0;
+        for (int k = 0; k <= bound; k++)
+          expected += LongMath.binomial(n, k);
+        assertEquals("at most " + bound + " of " + n, expected, models(encoder, n));
+      }
+  }
+
+  @Test
+  public void xorAllowsOddAmounts() {
+    for (int n = 1; n <= 9; n++) {
+      var encoder = new Collector(n);
+      encoder.xor(literals(n));
+      assertEquals("xor of " + n, 1L << (n - 1), models(encoder, n));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeBoundsAreRejected() {
+    new Collector(2).atMost(-1, literals(2));
+  }
+}
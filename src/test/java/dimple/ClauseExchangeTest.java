@@ -0,0 +1,60 @@
+package dimple;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ClauseExchangeTest {
+  private static List<int[]> receive(ClauseExchange.Endpoint endpoint) {
+    var received = new ArrayList<int[]>();
+    endpoint.receive((literals, from, length, lbd) ->
+        received.add(Arrays.copyOfRange(literals, from, from + length)));
+    return received;
+  }
+
+  @Test
+  public void clausesReachOtherSearches() {
+    var exchange = new ClauseExchange(2, 16, 8, 2);
+    var producer = exchange.endpoint(0);
+    var consumer = exchange.endpoint(1);
+
+    producer.export(new int[]{ 2, 5, 7 }, 3, 2);
+    assertEquals(0, receive(producer).size());
+
+    var received = receive(consumer);
+    assertEquals(1, received.size());
+    assertArrayEquals(new int[]{ 2, 5, 7 }, received.get(0));
+    assertEquals(0, receive(consumer).size());
+    assertEquals(1, producer.exported());
+    assertEquals(1, consumer.imported());
+  }
+
+  @Test
+  public void longClausesOfHighLbdAreNotShared() {
+    var exchange = new ClauseExchange(2, 16, 3, 2);
+    var producer = exchange.endpoint(0);
+
+    producer.export(new int[]{ 2, 4, 6, 8 }, 4, 2);
+    producer.export(new int[]{ 2, 4, 6 }, 3, 3);
+    producer.export(new int[]{ 2, 4 }, 2, 2);
+    assertEquals(1, receive(exchange.endpoint(1)).size());
+  }
+
+  @Test
+  public void slowConsumersSkipOverwrittenClauses() {
+    var exchange = new ClauseExchange(2, 4, 8, 2);
+    var producer = exchange.endpoint(0);
+    var consumer = exchange.endpoint(1);
+
+    for (int i = 0; i < 10; i++)
+      producer.export(new int[]{ 2 * i }, 1, 1);
+
+    var received = receive(consumer);
+    assertEquals(4, received.size());
+    assertArrayEquals(new int[]{ 12 }, received.get(0));
+  }
+}
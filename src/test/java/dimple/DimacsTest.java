@@ -0,0 +1,146 @@
+package dimple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
+
+import dimple.sexp.ParseException;
+import dimple.sexp.Sexpressions;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DimacsTest {
+  static final String CNF = String.join("\r\n",
+      "c A comment",
+      "p cnf 3 3",
+      "1 -2 0",
+      "2   3",
+      "0 -1 0",
+      "%",
+      "0");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Set<Map<String, Boolean>> solutions(ClauseBuilder builder) {
+    return builder.createSolver().solutions().collect(Collectors.toSet());
+  }
+
+  @Test
+  public void readClauses() throws Exception {
+    var builder = new ClauseBuilder();
+    Dimacs.read(new ByteArrayInputStream(CNF.getBytes(StandardCharsets.US_ASCII)), builder);
+
+    assertEquals(3, builder.clauses().size());
+    assertEquals(Set.of(Map.of("1", false, "2", false, "3", true)), solutions(builder));
+  }
+
+  @Test
+  public void readFiles() throws Exception {
+    var plain = folder.newFile("plain.cnf").toPath();
+    Files.writeString(plain, CNF);
+    var compressed = folder.newFile("compressed.cnf.gz").toPath();
+    try (var output = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+      output.write(CNF.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    for (var path : List.of(plain, compressed)) {
+      assertTrue(Dimacs.isDimacs(path));
+      assertEquals(Map.of("1", false, "2", false, "3", true),
+          Dimacs.createSolver(path, SolverOptions.defaults()).solve().get());
+    }
+    var program = folder.newFile("program").toPath();
+    Files.writeString(program, "; c\n(and a b)");
+    assertFalse(Dimacs.isDimacs(program));
+  }
+
+  // Writes to a named pipe on a thread of its own, since opening the pipe blocks until it is read.
+  private static Thread write(Path pipe, byte[] bytes) {
+    var thread = new Thread(() -> {
+      try {
+        Files.write(pipe, bytes);
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  // A named pipe can be read only once, and cannot be mapped or seeked.
+  @Test(timeout = 10_000)
+  public void readPipes() throws Exception {
+    var pipe = folder.getRoot().toPath().resolve("pipe");
+    try {
+      assumeTrue(new ProcessBuilder("mkfifo", pipe.toString()).start().waitFor() == 0);
+    } catch (IOException exception) {
+      assumeNoException(exception);
+    }
+    var plain = CNF.getBytes(StandardCharsets.US_ASCII);
+    var compressed = new ByteArrayOutputStream();
+    try (var output = new GZIPOutputStream(compressed)) {
+      output.write(plain);
+    }
+
+    for (var bytes : List.of(plain, compressed.toByteArray())) {
+      var writer = write(pipe, bytes);
+      assertEquals(Map.of("1", false, "2", false, "3", true),
+          Dimacs.createSolver(pipe, SolverOptions.defaults()).solve().get());
+      writer.join();
+
+      writer = write(pipe, bytes);
+      try (var input = Dimacs.open(pipe)) {
+        assertTrue(Dimacs.isDimacs(input));
+        assertEquals(Map.of("1", false, "2", false, "3", true),
+            Dimacs.createSolver(input, SolverOptions.defaults()).solve().get());
+      }
+      writer.join();
+    }
+  }
+
+  @Test(expected = ParseException.class)
+  public void malformedInput() throws Exception {
+    Dimacs.read(new ByteArrayInputStream("p cnf 2 1\n1 x 0\n".getBytes()), new ClauseBuilder());
+  }
+
+  @Test
+  public void writeKeepsSolutions() throws Exception {
+    var program = "(and (or a (not b) e) (atmost 2 a b c d e) (exactly 1 b c d) (xor a c d e f))";
+    var solver = Sexpressions.createSolver(program, SolverOptions.defaults());
+    var writer = new StringWriter();
+    solver.writeDimacs(writer);
+
+    var builder = new ClauseBuilder();
+    Dimacs.read(new ByteArrayInputStream(writer.toString().getBytes()), builder);
+    // Names are written in comments, and auxiliary variables are left out of them.
+    var names = writer.toString().lines()
+        .filter((line) -> line.startsWith("c "))
+        .map((line) -> line.split(" "))
+        .collect(Collectors.toMap((line) -> line[1], (line) -> line[2]));
+    assertEquals(6, names.size());
+    var projected = builder.createSolver().solutions()
+        .map((solution) -> solution.entrySet().stream()
+            .filter((entry) -> names.containsKey(entry.getKey()))
+            .collect(Collectors.toMap(
+                (entry) -> names.get(entry.getKey()), Map.Entry::getValue)))
+        .collect(Collectors.toSet());
+    assertEquals(solver.solutions().collect(Collectors.toSet()), projected);
+  }
+}
@@ -0,0 +1,38 @@
+package dimple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IntHeapTest {
+  @Test
+  public void removesInPriorityOrder() {
+    var priorities = new double[]{ 3.0, 1.0, 4.0, 1.5, 5.0 };
+    var heap = new IntHeap(priorities);
+    for (int i = 0; i < priorities.length; i++)
+      heap.insert(i);
+
+    assertEquals(4, heap.removeMax());
+    assertEquals(2, heap.removeMax());
+    assertEquals(0, heap.removeMax());
+    assertEquals(3, heap.removeMax());
+    assertEquals(1, heap.removeMax());
+    assertTrue(heap.isEmpty());
+  }
+
+  @Test
+  public void increasedPriorityMovesUp() {
+    var priorities = new double[]{ 3.0, 1.0, 2.0 };
+    var heap = new IntHeap(priorities);
+    for (int i = 0; i < priorities.length; i++)
+      heap.insert(i);
+
+    priorities[1] = 10.0;
+    heap.increased(1);
+    assertEquals(1, heap.removeMax());
+    assertFalse(heap.contains(1));
+    assertTrue(heap.contains(2));
+  }
+}
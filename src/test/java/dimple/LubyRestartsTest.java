@@ -0,0 +1,28 @@
+package dimple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LubyRestartsTest {
+  @Test
+  public void lubySequence() {
+    long[] expected = { 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8 };
+    for (int i = 0; i < expected.length; i++)
+      assertEquals(expected[i], LubyRestarts.luby(i));
+  }
+
+  @Test
+  public void restartsAfterUnitConflicts() {
+    var policy = new LubyRestarts(2);
+    policy.conflict(1);
+    assertFalse(policy.shouldRestart());
+    policy.conflict(1);
+    assertTrue(policy.shouldRestart());
+
+    policy.restarted();
+    assertFalse(policy.shouldRestart());
+  }
+}
@@ -0,0 +1,66 @@
+package dimple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.HashBiMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ModelTest {
+  private static Model model(int size, int... trueVariables) {
+    var names = HashBiMap.<String, Integer>create();
+    var assignment = new Assignment(size);
+    for (int variable = 0; variable < size; variable++) {
+      names.put("X" + variable, variable);
+      assignment.assign(Literals.of(variable, true));
+    }
+    for (int variable : trueVariables)
+      assignment.assign(Literals.of(variable, false));
+    var named = new long[(size + 63) / 64];
+    Arrays.fill(named, -1L);
+    return new Model(assignment, names, named);
+  }
+
+  @Test
+  public void iteratesOverTrueVariables() {
+    var model = model(200, 0, 63, 64, 130, 199);
+
+    List<Integer> trueVariables = new ArrayList<>();
+    for (int v = model.nextTrue(0); v != -1; v = model.nextTrue(v + 1))
+      trueVariables.add(v);
+
+    assertEquals(List.of(0, 63, 64, 130, 199), trueVariables);
+    assertEquals(5, model.trueCount());
+    assertEquals(-1, model.nextTrue(200));
+  }
+
+  @Test
+  public void entriesHaveTheValuesOfTheModel() {
+    var model = model(3, 0, 2);
+
+    var values = new HashMap<String, Boolean>();
+    for (var entry : model.asMap().entrySet())
+      values.put(entry.getKey(), entry.getValue());
+
+    assertEquals(Map.of("X0", true, "X1", false, "X2", true), values);
+  }
+
+  @Test
+  public void looksUpNames() {
+    var model = model(3, 1);
+
+    assertTrue(model.get("X1"));
+    assertFalse(model.get("X2"));
+    assertNull(model.get("Y"));
+    assertEquals("X1", model.name(1));
+    assertEquals(Map.of("X0", false, "X1", true, "X2", false), model.asMap());
+    assertEquals(Map.of("X0", false, "X1", true, "X2", false), Map.copyOf(model.asMap()));
+  }
+}
@@ -0,0 +1,122 @@
+package dimple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class PreprocessorTest {
+  private static boolean satisfies(ClauseDatabase clauses, Assignment assignment) {
+    for (int ref = clauses.first(); ref < clauses.end(); ref = clauses.next(ref)) {
+      boolean satisfied = false;
+      for (int i = 0; i < clauses.length(ref); i++)
+        satisfied |= assignment.valueOf(clauses.literal(ref, i)) == Assignment.TRUE;
+      if (!satisfied)
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean satisfiable(int variables, ClauseDatabase clauses) {
+    var assignment = new Assignment(variables);
+    for (int values = 0; values < 1 << variables; values++) {
+      for (int variable = 0; variable < variables; variable++)
+        assignment.assign(Literals.of(variable, (values >> variable & 1) == 0));
+      if (satisfies(clauses, assignment))
+        return true;
+    }
+    return false;
+  }
+
+  @Test
+  public void eliminatedVariablesAreRestoredInModels() {
+    // x0 -> x1 -> ... -> x9, and x0 or x9.
+    var clauses = new ClauseDatabase();
+    for (int variable = 0; variable < 9; variable++)
+      clauses.add(Literals.of(variable, true), Literals.of(variable + 1, false));
+    clauses.add(Literals.of(0, false), Literals.of(9, false));
+
+    var preprocessor = new Preprocessor(10, clauses);
+    var simplified = preprocessor.simplify();
+    assertTrue(preprocessor.eliminatedVariables() > 0);
+    assertTrue(simplified.size() < clauses.size());
+
+    var search = new CdclSearch(10, simplified, SolverOptions.defaults());
+    assertEquals(Result.SAT, search.solve());
+    assertTrue(satisfies(clauses, preprocessor.extend(search.model())));
+  }
+
+  @Test
+  public void equivalentLiteralsAreSubstituted() {
+    // a -> b -> c -> a, with the clause (or (not a) d e) keeping them in use.
+    var clauses = new ClauseDatabase();
+    clauses.add(Literals.of(0, true), Literals.of(1, false));
+    clauses.add(Literals.of(1, true), Literals.of(2, false));
+    clauses.add(Literals.of(2, true), Literals.of(0, false));
+    clauses.add(Literals.of(0, true), Literals.of(3, false), Literals.of(4, false));
+
+    var preprocessor = new Preprocessor(5, clauses);
+    var search = new CdclSearch(5, preprocessor.simplify(), SolverOptions.defaults());
+    assertEquals(2, preprocessor.substitutedVariables());
+    assertEquals(Result.SAT, search.solve());
+
+    var model = preprocessor.extend(search.model());
+    assertTrue(satisfies(clauses, model));
+    assertEquals(model.get(0), model.get(1));
+    assertEquals(model.get(0), model.get(2));
+  }
+
+  @Test
+  public void failedLiteralsAreFixed() {
+    // a -> b -> c, a -> d, c and d together imply e, and e -> not a.
+    var clauses = new ClauseDatabase();
+    clauses.add(Literals.of(0, true), Literals.of(1, false));
+    clauses.add(Literals.of(1, true), Literals.of(2, false));
+    clauses.add(Literals.of(0, true), Literals.of(3, false));
+    clauses.add(Literals.of(2, true), Literals.of(3, true), Literals.of(4, false));
+    clauses.add(Literals.of(4, true), Literals.of(0, true));
+
+    var preprocessor = new Preprocessor(5, clauses);
+    var simplified = preprocessor.simplify();
+    assertTrue(preprocessor.failedLiterals() > 0);
+
+    var search = new CdclSearch(5, simplified, SolverOptions.defaults());
+    assertEquals(Result.SAT, search.solve());
+    assertFalse(preprocessor.extend(search.model()).get(0));
+  }
+
+  @Test
+  public void findsUnsatisfiability() {
+    var clauses = new ClauseDatabase();
+    clauses.add(Literals.of(0, false), Literals.of(1, false));
+    clauses.add(Literals.of(0, false), Literals.of(1, true));
+    clauses.add(Literals.of(0, true), Literals.of(1, false));
+    clauses.add(Literals.of(0, true), Literals.of(1, true));
+
+    assertTrue(new Preprocessor(2, clauses).simplify().hasEmptyClause());
+  }
+
+  @Test
+  public void simplifiedClausesAreEquisatisfiable() {
+    var random = new Random(7);
+    for (int round = 0; round < 300; round++) {
+      int variables = 3 + random.nextInt(8);
+      var clauses = new ClauseDatabase(variables);
+      for (int clause = 0; clause < variables * 4; clause++) {
+        var literals = new int[1 + random.nextInt(4)];
+        for (int i = 0; i < literals.length; i++)
+          literals[i] = Literals.of(random.nextInt(variables), random.nextBoolean());
+        clauses.add(literals);
+      }
+
+      var preprocessor = new Preprocessor(variables, clauses);
+      var search = new CdclSearch(variables, preprocessor.simplify(), SolverOptions.defaults());
+      var result = search.solve();
+      assertEquals(satisfiable(variables, clauses), result == Result.SAT);
+      if (result == Result.SAT)
+        assertTrue(satisfies(clauses, preprocessor.extend(search.model())));
+    }
+  }
+}
@@ -8,6 +8,8 @@ import com.google.common.base.Joiner;
 import dimple.formula.CnfConverter;
 import dimple.formula.Formulas;
 import dimple.sexp.Sexpressions;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Test;
 
 public class SolverTest {
@@ -50,6 +52,236 @@ public class SolverTest {
     assertFalse(solution.get("B"));
   }
 
+  @Test
+  public void solveAllEnumeratesEveryModel() throws Exception {
+    var solver = Formulas.createSolver(Sexpressions.compile("(and (or A B C) (or (not A) B))"));
+    var solutions = solver.solveAll().get();
+
+    assertEquals(5, solutions.size());
+    for (var solution : solutions)
+      assertTrue(solution.get("B") || (solution.get("C") && !solution.get("A")));
+  }
+
+  @Test
+  public void solutionsAreStreamedLazily() throws Exception {
+    var formula = Sexpressions.compile("(and (or A B C) (or (not A) B))");
+    var backtracking = SolverOptions.builder()
+        .strategy(SolverOptions.Strategy.BACKTRACKING)
+        .build();
+    for (var options : new SolverOptions[] { SolverOptions.defaults(), backtracking }) {
+      var solutions = Formulas.createSolver(formula, options).solutions();
+      assertEquals(5, solutions.distinct().count());
+    }
+
+    var many = new StringBuilder("(and");
+    for (int i = 0; i < 60; i++)
+      many.append(String.format(" (or X%d Y%d)", i, i));
+    var solver = Formulas.createSolver(Sexpressions.compile(many.append(")").toString()));
+    assertEquals(3, solver.solutions().limit(3).count());
+  }
+
+  @Test
+  public void encodedFormulasHideAuxiliaryVariables() throws Exception {
+    var formula = Sexpressions.compile("(or (and A B) (and (not A) C))");
+    for (var encoding : new SolverOptions.Encoding[] {
+        SolverOptions.Encoding.TSEITIN, SolverOptions.Encoding.PLAISTED_GREENBAUM }) {
+      var options = SolverOptions.builder().encoding(encoding).build();
+      var solutions = Formulas.createSolver(formula, options).solveAll().get();
+
+      assertEquals(4, solutions.size());
+      for (var solution : solutions) {
+        assertEquals(Set.of("A", "B", "C"), solution.keySet());
+        assertTrue(Formulas.eval(formula, solution));
+      }
+    }
+  }
+
+  @Test
+  public void solveWithBacktracking() throws Exception {
+    var options = SolverOptions.builder().strategy(SolverOptions.Strategy.BACKTRACKING).build();
+    var solver = Formulas.createSolver(Sexpressions.compile(FILE_CONTENTS), options);
+    var solution = solver.solve().get();
+
+    assertTrue(solution.get("A"));
+    assertTrue(solution.get("C"));
+    assertFalse(solution.get("B"));
+  }
+
+  @Test
+  public void pigeonholeIsUnsatisfiable() throws Exception {
+    var solver = Formulas.createSolver(Sexpressions.compile(pigeonhole(6)));
+    assertFalse(solver.solve().isPresent());
+  }
+
+  @Test
+  public void pigeonholeWithGlucoseRestarts() throws Exception {
+    var options = SolverOptions.builder()
+        .restarts(() -> new GlucoseRestarts(5, 0.8))
+        .phaseSaving(false)
+        .build();
+    var solver = Formulas.createSolver(Sexpressions.compile(pigeonhole(6)), options);
+    assertFalse(solver.solve().isPresent());
+  }
+
+  @Test
+  public void learnedClausesAreReduced() throws Exception {
+    var options = SolverOptions.builder()
+        .reduceInterval(50)
+        .reduceIncrement(10)
+        .build();
+    var solver = Formulas.createSolver(Sexpressions.compile(pigeonhole(7)), options);
+    assertFalse(solver.solve().isPresent());
+
+    var statistics = solver.statistics();
+    assertTrue(statistics.reductions() > 0);
+    assertTrue(statistics.deletedClauses() > 0);
+    assertTrue(statistics.glueClauses() <= statistics.learnedClauses());
+  }
+
+  @Test
+  public void portfolioSolvesInParallel() throws Exception {
+    var options = SolverOptions.builder().threads(4).build();
+
+    var solution = Formulas.createSolver(Sexpressions.compile(FILE_CONTENTS), options).solve();
+    assertTrue(solution.get().get("A"));
+    assertTrue(solution.get().get("C"));
+    assertFalse(solution.get().get("B"));
+
+    var solver = Formulas.createSolver(Sexpressions.compile(pigeonhole(7)), options);
+    assertFalse(solver.solve().isPresent());
+  }
+
+  @Test
+  public void portfolioSharesLearnedClauses() throws Exception {
+    var options = SolverOptions.builder()
+        .threads(3)
+        .shareMaxSize(20)
+        .shareMaxLbd(20)
+        .restarts(() -> new LubyRestarts(4))
+        .build();
+    var solver = Formulas.createSolver(Sexpressions.compile(pigeonhole(7)), options);
+    assertFalse(solver.solve().isPresent());
+
+    assertTrue(solver.statistics().exportedClauses() > 0);
+  }
+
+  @Test
+  public void incrementalSolvingUnderAssumptions() throws Exception {
+    var solver = Formulas.createSolver(Sexpressions.compile("(and (or A B) (or (not A) C))"));
+
+    var outcome = solver.solve(Map.of("A", true, "C", false));
+    assertEquals(Result.UNSAT, outcome.result());
+    assertEquals(Map.of("A", true, "C", false), outcome.failedAssumptions());
+
+    outcome = solver.solve(Map.of("A", true, "B", false));
+    assertTrue(outcome.model().get().get("C"));
+
+    Formulas.addClauses(solver, Sexpressions.compile("(or (not B) D)"));
+    outcome = solver.solve(Map.of("A", false, "D", false, "E", true));
+    assertEquals(Map.of("A", false, "D", false), outcome.failedAssumptions());
+
+    solver.addClause(Map.of("A", false));
+    outcome = solver.solve(Map.of());
+    assertFalse(outcome.model().get().get("A"));
+    assertTrue(outcome.model().get().get("D"));
+
+    solver.addClause(Map.of("D", false));
+    outcome = solver.solve(Map.of("E", true));
+    assertFalse(outcome.isSatisfiable());
+    assertTrue(outcome.failedAssumptions().isEmpty());
+  }
+
+  @Test
+  public void nativeCardinalityConstraints() throws Exception {
+    var formula = Sexpressions.compile("(and (atleast 2 A B C D) (atmost 2 A B C D) (or A B))");
+    for (var strategy : SolverOptions.Strategy.values()) {
+      var options = SolverOptions.builder().strategy(strategy).build();
+      assertEquals(5, Formulas.createSolver(formula, options).solutions().count());
+    }
+
+    var solver = Formulas.createSolver(formula);
+    Formulas.addClauses(solver, Sexpressions.compile("(atmost 0 A B)"));
+    assertFalse(solver.solve().isPresent());
+  }
+
+  @Test
+  public void nativePigeonholeIsUnsatisfiable() throws Exception {
+    var builder = new StringBuilder("(and");
+    for (int p = 0; p <= 6; p++)
+      builder.append(String.format(" (exactly 1 P%d,0 P%d,1 P%d,2 P%d,3 P%d,4 P%d,5)",
+          p, p, p, p, p, p));
+    for (int h = 0; h < 6; h++)
+      builder.append(String.format(" (atmost 1 P0,%d P1,%d P2,%d P3,%d P4,%d P5,%d P6,%d)",
+          h, h, h, h, h, h, h));
+    var solver = Formulas.createSolver(Sexpressions.compile(builder.append(")").toString()));
+    assertFalse(solver.solve().isPresent());
+  }
+
+  @Test
+  public void xorConstraints() throws Exception {
+    var formula = Sexpressions.compile(
+        "(and (xor A B C D) (xor (not A) C E) (xor B D E F) (or A F))");
+    for (var strategy : SolverOptions.Strategy.values())
+      for (boolean gaussianElimination : new boolean[] {true, false}) {
+        var options = SolverOptions.builder()
+            .strategy(strategy)
+            .gaussianElimination(gaussianElimination)
+            .build();
+        assertEquals(4, Formulas.createSolver(formula, options).solutions().count());
+      }
+
+    var solver = Formulas.createSolver(formula);
+    Formulas.addClauses(solver, Sexpressions.compile("(xor A C E F)"));
+    assertFalse(solver.solve().isPresent());
+  }
+
+  @Test
+  public void parityIsRefutedWithoutSearch() throws Exception {
+    // Every variable occurs in four of the constraints, which add up to an odd parity.
+    var builder = new StringBuilder("(and");
+    for (int i = 0; i < 51; i++)
+      builder.append(String.format(
+          " (xor X%d X%d X%d X%d)", i, (i + 1) % 51, (i + 2) % 51, (i + 3) % 51));
+    var solver = Formulas.createSolver(Sexpressions.compile(builder.append(")").toString()));
+
+    assertFalse(solver.solve().isPresent());
+    assertEquals(0, solver.statistics().decisions());
+  }
+
+  // n + 1 pigeons in n holes.
+  static String pigeonhole(int holes) {
+    var builder = new StringBuilder("(and");
+    for (int p = 0; p <= holes; p++) {
+      builder.append(" (or");
+      for (int h = 0; h < holes; h++)
+        builder.append(String.format(" P%d,%d", p, h));
+      builder.append(")");
+    }
+    for (int h = 0; h < holes; h++)
+      for (int p = 0; p <= holes; p++)
+        for (int q = p + 1; q <= holes; q++)
+          builder.append(String.format(" (or (not P%d,%d) (not P%d,%d))", p, h, q, h));
+    return builder.append(")").toString();
+  }
+
+  @Test
+  public void cubeAndConquerSplitsTheSearch() throws Exception {
+    var options = SolverOptions.builder()
+        .strategy(SolverOptions.Strategy.CUBE_AND_CONQUER)
+        .threads(4)
+        .cubeDepth(4)
+        .build();
+
+    var solution = Formulas.createSolver(Sexpressions.compile(FILE_CONTENTS), options).solve();
+    assertTrue(solution.get().get("A"));
+    assertTrue(solution.get().get("C"));
+    assertFalse(solution.get().get("B"));
+
+    var solver = Formulas.createSolver(Sexpressions.compile(pigeonhole(7)), options);
+    assertFalse(solver.solve().isPresent());
+    assertTrue(solver.statistics().conflicts() > 0);
+  }
+
   @Test
   public void noSolution() throws Exception {
     var formula = Sexpressions.compile(NO_SOLUTION);
@@ -0,0 +1,85 @@
+package dimple.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import dimple.SolverOptions;
+import dimple.sexp.Sexpressions;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class CardinalityEncoderTest {
+  private static final List<String> VARIABLES = List.of("a", "b", "c", "d", "e", "f", "g");
+
+  // The amount of assignments to the variables which satisfy the formula.
+  private static long countModels(Formula formula, int variables) {
+    long count = 0;
+    for (int values = 0; values < 1 << variables; values++) {
+      Map<String, Boolean> assignment = new HashMap<>();
+      for (int i = 0; i < variables; i++)
+        assignment.put(VARIABLES.get(i), (values >> i & 1) == 1);
+      if (Formulas.eval(formula, assignment))
+        count++;
+    }
+    return count;
+  }
+
+  private static long countSolutions(Formula formula, SolverOptions options) {
+    return Formulas.createSolver(formula, options).solutions().count();
+  }
+
+  private static String program(String function, int bound, int variables) {
+    return "(" + function + " " + bound + " " + String.join(" ", VARIABLES.subList(0, variables))
+        + ")";
+  }
+
+  @Test
+  public void encodingsHaveTheModelsOfTheConstraint() throws Exception {
+    for (var encoding : SolverOptions.CardinalityEncoding.values()) {
+      var options = SolverOptions.builder().cardinalityEncoding(encoding).build();
+      for (int variables = 1; variables <= VARIABLES.size(); variables++)
+        for (int bound = 0; bound <= variables + 1; bound++)
+          for (var function : List.of("atmost", "atleast", "exactly")) {
+            var formula = Sexpressions.compile(program(function, bound, variables));
+            assertEquals(Formulas.toString(formula) + " with " + encoding,
+                countModels(formula, variables), countSolutions(formula, options));
+          }
+    }
+  }
+
+  @Test
+  public void nestedConstraintsAreExpanded() throws Exception {
+    var formula = Sexpressions.compile(
+        "(and (or e (not (exactly 2 a b c d))) (iff e (atmost 1 a b (not c))))");
+
+    assertEquals(countModels(formula, 5), countSolutions(formula, SolverOptions.defaults()));
+  }
+
+  @Test
+  public void xorsHaveTheirModels() throws Exception {
+    var encoded = SolverOptions.builder().gaussianElimination(false).build();
+    for (int variables = 2; variables <= VARIABLES.size(); variables++) {
+      var formula = Sexpressions.compile(
+          "(xor (not " + String.join(" ", VARIABLES.subList(0, variables)).replaceFirst(" ", ") ")
+          + ")");
+      assertEquals(Formulas.toString(formula),
+          countModels(formula, variables), countSolutions(formula, encoded));
+      assertEquals(Formulas.toString(formula),
+          countModels(formula, variables), countSolutions(formula, SolverOptions.defaults()));
+    }
+
+    var nested = Sexpressions.compile("(and (or a (xor b c d)) (iff e (xor a b (not e))))");
+    assertEquals(countModels(nested, 5), countSolutions(nested, SolverOptions.defaults()));
+  }
+
+  @Test
+  public void atMostOneIsLinear() throws Exception {
+    var formula = Sexpressions.compile(program("atmost", 1, 7).replace(" g", " g h i j k l"));
+    var cnf = (NaryConnective)CnfConverter.convert(formula);
+
+    assertTrue(Formulas.isCnf(cnf));
+    assertTrue(cnf.operands.length < 3 * 12);
+  }
+}
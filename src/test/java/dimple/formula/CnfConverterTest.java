@@ -3,6 +3,7 @@ package dimple.formula;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import dimple.SolverOptions;
 import dimple.sexp.Sexpressions;
 import org.junit.Test;
 
@@ -69,9 +70,46 @@ public class CnfConverterTest {
     assertEquals("(and (or a b) (or a c))", Formulas.toString(formula));
   }
 
+  @Test
+  public void distributionDropsClausesWhichAreAlwaysTrue() throws Exception {
+    var formula = CnfConverter.convert(Sexpressions.compile("(or (and a b) (and (not a) b))"));
+    assertEquals("(and (or a b) (or b (not a)) b)", Formulas.toString(formula));
+  }
+
+  @Test
+  public void distributionDropsRepeatedClauses() throws Exception {
+    var formula = CnfConverter.convert(Sexpressions.compile("(or "
+        + "(iff (iff (iff a b) (iff c d)) (iff e (iff a c))) "
+        + "(iff (iff b d) (iff e (iff a b))))"));
+    assertEquals(8, ((NaryConnective)formula).operands.length);
+  }
+
   @Test
   public void correctness() throws Exception {
     var formula = CnfConverter.convert(Sexpressions.compile("(or a (and b (if a c)))"));
     assertTrue(Formulas.isCnf(formula));
   }
+
+  @Test
+  public void plaistedGreenbaumKeepsClauses() throws Exception {
+    var formula = CnfConverter.convert(
+        Sexpressions.compile("(and (or a b) (not c))"), SolverOptions.Encoding.PLAISTED_GREENBAUM);
+    assertEquals("(and (or a b) (not c))", Formulas.toString(formula));
+  }
+
+  @Test
+  public void plaistedGreenbaumDefinesOneDirection() throws Exception {
+    var formula = CnfConverter.convert(
+        Sexpressions.compile("(or a (and b c))"), SolverOptions.Encoding.PLAISTED_GREENBAUM);
+    assertEquals("(and (or a 0) (or (not 0) b) (or (not 0) c))", Formulas.toString(formula));
+  }
+
+  @Test
+  public void tseitinDefinesBothDirections() throws Exception {
+    var formula = CnfConverter.convert(
+        Sexpressions.compile("(or a (and b c))"), SolverOptions.Encoding.TSEITIN);
+    assertEquals(
+        "(and (or a 0) (or (not 0) b) (or (not 0) c) (or 0 (not b) (not c)))",
+        Formulas.toString(formula));
+  }
 }
@@ -0,0 +1,52 @@
+package dimple.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import dimple.sexp.Sexpressions;
+import org.junit.Test;
+
+public class FormulaFactoryTest {
+  @Test
+  public void sharesEqualFormulas() {
+    var factory = new FormulaFactory();
+    var first = factory.and(factory.var("a"), factory.not(factory.var("b")));
+    var second = factory.and(factory.var("a"), factory.not(factory.var("b")));
+
+    assertSame(first, second);
+    assertNotSame(first, factory.or(factory.var("a"), factory.not(factory.var("b"))));
+    assertEquals(5, factory.size());
+  }
+
+  @Test
+  public void internsForeignFormulas() throws Exception {
+    var factory = new FormulaFactory();
+    var formula = factory.implies(factory.var("a"), factory.var("b"));
+
+    assertSame(formula, factory.intern(Sexpressions.compile("(if a b)")));
+  }
+
+  @Test
+  public void compilerSharesSubexpressions() throws Exception {
+    var formula = (BinaryConnective)Sexpressions.compile("(iff (and a b) (and a b))");
+
+    assertSame(formula.left, formula.right);
+  }
+
+  @Test
+  public void conversionKeepsSharing() throws Exception {
+    var formula = Sexpressions.compile("(and (or c (iff a b)) (or c (iff a b)))");
+    var converted = (NaryConnective)CnfConverter.convert(formula);
+
+    assertSame(converted.operands[0], converted.operands[1]);
+  }
+
+  @Test
+  public void sharedClausesAreAddedOnce() throws Exception {
+    var visitor = new FormulaSolverVisitor();
+    visitor.add(Sexpressions.compile("(and (or a b) (and (or a b) (or a c)))"));
+
+    assertEquals(2, visitor.clauses().size());
+  }
+}
@@ -1,9 +1,12 @@
 package dimple.formula;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import dimple.SolverOptions;
 import dimple.sexp.Sexpressions;
+import java.util.HashMap;
 import java.util.Map;
 import org.junit.Test;
 
@@ -67,4 +70,30 @@ public class FormulasTest {
     var formula = Sexpressions.compile("(and (or (and a c) b) (or b (not c)))");
     assertFalse(Formulas.isCnf(formula));
   }
+
+  @Test
+  public void variablesOfClausesWhichAreAlwaysTrueAreKept() throws Exception {
+    var formula = Sexpressions.compile("(or a (not a) (and b c))");
+    assertEquals(8, Formulas.createSolver(formula).solveAll().get().size());
+  }
+
+  @Test
+  public void deepFormulasDoNotOverflowTheStack() {
+    var factory = new FormulaFactory();
+    var assignment = new HashMap<String, Boolean>(Map.of("x0", true));
+    Formula formula = factory.var("x0");
+    for (int i = 1; i < 100_000; i++) {
+      formula = factory.and(factory.var("x" + i), factory.not(factory.not(formula)));
+      assignment.put("x" + i, true);
+    }
+
+    assertTrue(Formulas.eval(formula, assignment));
+    assertFalse(Formulas.isCnf(formula));
+    assertTrue(Formulas.toString(formula).startsWith("(and x99999 (not (not (and x99998"));
+
+    var options = SolverOptions.builder().encoding(SolverOptions.Encoding.DISTRIBUTION).build();
+    var model = Formulas.createSolver(formula, options).solve().get();
+    assertEquals(100_000, model.size());
+    assertTrue(model.get("x0") && model.get("x99999"));
+  }
 }
@@ -5,9 +5,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.math.IntMath;
+import dimple.formula.Formulas;
+import dimple.sexp.Sexpressions;
 import java.math.RoundingMode;
 import java.util.HashSet;
-import org.junit.Ignore;
 import org.junit.Test;
 
 public class SudokuReductionTest {
@@ -27,7 +28,6 @@ public class SudokuReductionTest {
     assertSolved(solvedSudoku, sudoku);
   }
 
-  @Ignore("Causes stack overflow")
   @Test
   public void solve9x9() {
     int[][] sudoku = {
@@ -49,6 +49,38 @@ public class SudokuReductionTest {
     assertSolved(solvedSudoku, sudoku);
   }
 
+  @Test
+  public void solve16x16() {
+    int[][] sudoku = new int[16][16];
+    for (int i = 0; i < 16; i++)
+      sudoku[i][(5 * i) % 16] = i + 1;
+
+    var solver = ReductionSolver.of(new SudokuReduction());
+    var solution = solver.solve(sudoku).get();
+    var solvedSudoku = SudokuReduction.decodeSolution(solution);
+
+    assertSolved(solvedSudoku, sudoku);
+  }
+
+  @Test
+  public void sexpressionHasTheSameSolution() {
+    int[][] sudoku = {
+      {0, 1, 3, 0},
+      {0, 0, 0, 0},
+      {0, 0, 0, 0},
+      {3, 4, 2, 1},
+    };
+
+    var solver = ReductionSolver.of(new SudokuReduction());
+    var formula = Sexpressions.compile(solver.toSexpression(sudoku));
+    var solution = Formulas.createSolver(formula).findModel().get();
+    var solvedSudoku = SudokuReduction.decodeSolution(solution);
+
+    assertSolved(solvedSudoku, sudoku);
+    assertEquals(
+        solver.solveAll(sudoku).get().size(), Formulas.createSolver(formula).models().count());
+  }
+
   @Test
   public void noSolution() {
     int[][] sudoku = {
@@ -0,0 +1,62 @@
+package dimple.sexp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import dimple.SolverOptions;
+import dimple.formula.Formulas;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class SexpressionClausesTest {
+  private static boolean isCnf(String program, SolverOptions options) {
+    return new SexpressionClauses(SexpressionParser.parseTree(program), options).isCnf();
+  }
+
+  private static Set<Map<String, Boolean>> solutions(String program, SolverOptions options) {
+    return Sexpressions.createSolver(program, options).solutions().collect(Collectors.toSet());
+  }
+
+  @Test
+  public void recognizeCnf() {
+    var defaults = SolverOptions.defaults();
+
+    assertTrue(isCnf("(and (or a (not b)) c (not d) (atmost 1 a b c) (xor a b d))", defaults));
+    assertTrue(isCnf("(or a (not b))", defaults));
+    assertFalse(isCnf("(and (or a (not b)) (iff a b))", defaults));
+    assertFalse(isCnf("(and (or a (and b c)) c)", defaults));
+    assertFalse(isCnf("(and (or a (not (not b))) c)", defaults));
+    assertFalse(isCnf("(and (or a) c)", defaults));
+    assertFalse(isCnf("(and (atmost a b c) c)", defaults));
+    assertFalse(isCnf("(and (exactly 1 a b c) c)",
+        SolverOptions.builder().cardinalityEncoding(SolverOptions.CardinalityEncoding.TOTALIZER)
+        .build()));
+    assertFalse(isCnf("(and (xor a b c) c)",
+        SolverOptions.builder().gaussianElimination(false).build()));
+  }
+
+  @Test
+  public void cnfHasTheSolutionsOfItsFormula() {
+    var program = "(and (or a (not b) e) (not c) (atleast 2 a b d e) (exactly 5 a b) "
+        + "(xor a d (not e)) (atmost 1 (not a) d e))";
+    var options = SolverOptions.defaults();
+    var formula = Sexpressions.compile(program);
+
+    assertEquals(Formulas.createSolver(formula, options).solutions().collect(Collectors.toSet()),
+        solutions(program, options));
+    var satisfiable = program.replace(" (exactly 5 a b)", "");
+    assertEquals(
+        Formulas.createSolver(Sexpressions.compile(satisfiable), options).solutions()
+            .collect(Collectors.toSet()),
+        solutions(satisfiable, options));
+    assertFalse(solutions(satisfiable, options).isEmpty());
+  }
+
+  @Test(expected = ParseException.class)
+  public void malformedProgramsAreCompiled() {
+    Sexpressions.createSolver("(and (or a b) (foo a))", SolverOptions.defaults());
+  }
+}
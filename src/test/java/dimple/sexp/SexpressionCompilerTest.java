@@ -24,7 +24,7 @@ public class SexpressionCompilerTest {
     var parsed = SexpressionParser.parse(program);
     var formula = SexpressionCompiler.compile(parsed);
 
-    assertEquals("(and (and a b) c)", Formulas.toString(formula));
+    assertEquals(program, Formulas.toString(formula));
   }
 
   @Test(expected = ParseException.class)
@@ -79,6 +79,47 @@ public class SexpressionCompilerTest {
     var parsed = SexpressionParser.parse(program);
     var formula = SexpressionCompiler.compile(parsed);
 
-    assertEquals("(and (and (not a) b) (or c (not a)))", Formulas.toString(formula));
+    assertEquals(program, Formulas.toString(formula));
+  }
+
+  @Test
+  public void compileCardinality() throws Exception {
+    String program = "(and (atmost 1 a b c) (atleast 2 a (not b) c) (exactly 0 c))";
+    var parsed = SexpressionParser.parse(program);
+    var formula = SexpressionCompiler.compile(parsed);
+
+    assertEquals(program, Formulas.toString(formula));
+  }
+
+  @Test
+  public void compileXor() throws Exception {
+    String program = "(or (xor a b (not c)) (not (xor a c)))";
+    var parsed = SexpressionParser.parse(program);
+    var formula = SexpressionCompiler.compile(parsed);
+
+    assertEquals(program, Formulas.toString(formula));
+  }
+
+  @Test(expected = ParseException.class)
+  public void compileCardinalityWithoutBound() throws Exception {
+    String program = "(atmost a b)";
+    var parsed = SexpressionParser.parse(program);
+    var formula = SexpressionCompiler.compile(parsed);
+  }
+
+  @Test
+  public void compileTree() throws Exception {
+    String program = "(and (or a (not b)) (atmost 1 a b c) (or (not b) (not a)))";
+    var parsed = SexpressionParser.parseTree(program);
+    var formula = SexpressionCompiler.compile(parsed);
+
+    assertEquals(program, Formulas.toString(formula));
+  }
+
+  @Test(expected = ParseException.class)
+  public void compileEmptyList() throws Exception {
+    String program = "(and a ())";
+    var parsed = SexpressionParser.parseTree(program);
+    var formula = SexpressionCompiler.compile(parsed);
   }
 }
@@ -1,7 +1,9 @@
 package dimple.sexp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
+import java.io.StringReader;
 import org.junit.Test;
 
 public class SexpressionParserTest {
@@ -55,4 +57,65 @@ public class SexpressionParserTest {
     assertEquals(1, sexp.size());
     assertEitherEquals("test", sexp.get(0));
   }
+
+  @Test
+  public void parseComments() throws Exception {
+    var sexp = SexpressionParser.parse("; comment (\n(this ; is\n test);trailing");
+
+    assertEquals(2, sexp.size());
+    assertEitherEquals("this", sexp.get(0));
+    assertEitherEquals("test", sexp.get(1));
+  }
+
+  @Test
+  public void parseFromReader() throws Exception {
+    var atom = "a".repeat(20000);
+    var sexp = SexpressionParser.parse(new StringReader("(" + atom + "\t(b)\r\n)"));
+
+    assertEquals(2, sexp.size());
+    assertEitherEquals(atom, sexp.get(0));
+    assertEquals(1, ((Sexpression)eitherUnwrap(sexp.get(1))).size());
+  }
+
+  @Test
+  public void parseDeeplyNested() throws Exception {
+    int depth = 100000;
+    var sexp = SexpressionParser.parse("(".repeat(depth) + "a" + ")".repeat(depth));
+
+    for (int i = 1; i < depth; i++)
+      sexp = (Sexpression)eitherUnwrap(sexp.getFirst());
+    assertEitherEquals("a", sexp.getFirst());
+  }
+
+  @Test
+  public void parseTree() throws Exception {
+    var tree = SexpressionParser.parseTree("(this (is this) test)");
+    int root = tree.root();
+
+    assertEquals(2, tree.lists());
+    assertEquals(3, tree.size(root));
+    assertEquals("this", tree.atom(tree.element(root, 0)));
+    assertEquals("test", tree.atom(tree.element(root, 2)));
+    int nested = tree.element(root, 1);
+    assertFalse(SexpressionTree.isAtom(nested));
+    assertEquals(2, tree.size(nested));
+    assertEquals("is", tree.atom(tree.element(nested, 0)));
+    // Atoms are interned.
+    assertEquals(tree.element(root, 0), tree.element(nested, 1));
+  }
+
+  @Test(expected = ParseException.class)
+  public void unbalancedTree() throws Exception {
+    SexpressionParser.parseTree("(this (is a test)))");
+  }
+
+  @Test(expected = ParseException.class)
+  public void unbalancedParentheses() throws Exception {
+    SexpressionParser.parse("(this (is a test)");
+  }
+
+  @Test(expected = ParseException.class)
+  public void trailingTokens() throws Exception {
+    SexpressionParser.parse("(this) test");
+  }
 }